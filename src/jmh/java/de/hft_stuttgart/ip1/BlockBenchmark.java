@@ -0,0 +1,91 @@
+package de.hft_stuttgart.ip1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockBenchmark {
+    private static final int PAGES = 24;
+    // PDFBox ships this font as its own fallback, so the benchmark runs without any system fonts.
+    private static final String BUNDLED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    @Param({"1", "3"})
+    private int pageThreads;
+
+    private ScriptTemplate template;
+    private Map<String, String> parameters;
+    private ScriptRunner runner;
+    private Path extractedFont;
+
+    @Setup
+    public void setUp() throws IOException {
+        String configured = System.getProperty("pdfscript.benchFont");
+        Path font = configured != null ? Path.of(configured) : extractBundledFont();
+        StringBuilder script = new StringBuilder(Fixtures.load("letterhead.pdfscript"));
+        for (int page = 0; page < PAGES; page++) {
+            script.append(page > 0 ? "nextpage.\n" : "")
+                    .append("font size 10 \"${font}\".\n")
+                    .append("print @ 50, 200 width 400 \"Dear customer, please find statement ").append(page)
+                    .append(" below. Regards from Stuttgart.\".\n")
+                    .append("stamp @ 50, 50 \"letterhead\".\n");
+        }
+        template = ScriptTemplate.compile(script);
+        parameters = Map.of("font", font.toAbsolutePath().toString());
+        RenderOptions options = new RenderOptions();
+        options.setPageThreads(pageThreads);
+        runner = new ScriptRunner(options);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (extractedFont != null) {
+            Files.deleteIfExists(extractedFont);
+        }
+    }
+
+    @Benchmark
+    public byte[] stampWithFontFile() throws IOException {
+        return render();
+    }
+
+    private Path extractBundledFont() throws IOException {
+        extractedFont = Files.createTempFile("pdfscript-bench", ".ttf");
+        try (InputStream input = BlockBenchmark.class.getResourceAsStream(BUNDLED_FONT)) {
+            if (input == null) {
+                throw new IOException("Missing bundled font: " + BUNDLED_FONT);
+            }
+            Files.copy(input, extractedFont, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return extractedFont;
+    }
+
+    private byte[] render() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        runner.run(template, Path.of("."), parameters, output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,31 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static String load(String name) {
+        try (InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (input == null) {
+                throw new IllegalArgumentException("Missing fixture: " + name);
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static String repeat(String name, int times) {
+        String script = load(name);
+        StringBuilder builder = new StringBuilder(script.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(script).append("\nnextpage.\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package de.hft_stuttgart.ip1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"invoice.pdfscript", "report.pdfscript"})
+    private String fixture;
+
+    private String script;
+    private ScriptTemplate template;
+    private Path outputDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        script = Fixtures.load(fixture);
+        template = ScriptTemplate.compile(script);
+        outputDir = Files.createTempDirectory("pdfscript-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Path runAndSave() throws IOException {
+        // Compiled per invocation: the CharSequence overloads hit the shared template cache after the first run.
+        return new ScriptRunner().run(ScriptTemplate.compile(script), outputDir, Map.of());
+    }
+
+    @Benchmark
+    public int executeWithoutSave() throws IOException {
+        try (PdfContext context = new PdfContext(outputDir)) {
+            context.setParameters(Map.of());
+            for (ScriptCommand command : template.getCommands()) {
+                command.execute(context);
+            }
+            return context.getDocument().getNumberOfPages();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.hft_stuttgart.ip1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+    @Param({"10", "50"})
+    private int columns;
+
+    @Param({"40", "1000"})
+    private int rows;
+
+    private PdfContext context;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        context = new PdfContext(Path.of("."));
+        context.getContentStream();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public TableLayout renderTable() throws IOException {
+        return TableRenderer.renderTable(
+                context,
+                20f,
+                20f,
+                columns,
+                rows,
+                0,
+                new float[]{10f},
+                new float[]{0.8f},
+                Color.BLACK,
+                Color.WHITE,
+                0.5f,
+                TableRenderer.DEFAULT_MARGIN
+        );
+    }
+
+    @Benchmark
+    public float fillCells() throws IOException {
+        TableLayout layout = renderTable();
+        float sum = 0f;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                sum += layout.getCellX(column) + layout.getCellY(row);
+            }
+        }
+        return sum;
+    }
+}
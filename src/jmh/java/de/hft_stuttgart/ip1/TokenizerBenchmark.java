@@ -0,0 +1,40 @@
+package de.hft_stuttgart.ip1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+    private String script;
+
+    @Setup
+    public void setUp() {
+        script = Fixtures.repeat("invoice.pdfscript", 100);
+    }
+
+    @Benchmark
+    public int tokenize() throws IOException {
+        ScriptTokenizer tokenizer = new ScriptTokenizer(script);
+        int count = 0;
+        while (tokenizer.next().type() != TokenType.EOF) {
+            count++;
+        }
+        return count;
+    }
+}
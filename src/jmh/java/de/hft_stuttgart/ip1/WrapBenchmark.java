@@ -0,0 +1,51 @@
+package de.hft_stuttgart.ip1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapBenchmark {
+    private static final String WORDS = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua. ";
+
+    @Param({"1000", "20000"})
+    private int length;
+
+    @Param({"80", "400"})
+    private float width;
+
+    private MeasuredFont font;
+    private String paragraph;
+
+    @Setup
+    public void setUp() throws IOException {
+        font = new FontRegistry().resolve("Helvetica", "regular");
+        StringBuilder builder = new StringBuilder(length + WORDS.length());
+        while (builder.length() < length) {
+            builder.append(WORDS);
+        }
+        paragraph = builder.substring(0, length);
+    }
+
+    @Benchmark
+    public TextRenderer.WrappedLines wrap() throws IOException {
+        return TextRenderer.wrapLines(font, 10f, paragraph, width);
+    }
+}
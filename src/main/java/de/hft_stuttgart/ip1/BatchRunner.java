@@ -0,0 +1,121 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchRunner {
+    public static final String SCRIPT_EXTENSION = ".pdfscript";
+
+    private final int threads;
+    private final RenderOptions options;
+
+    public BatchRunner(int threads, RenderOptions options) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Batch requires at least one worker thread");
+        }
+        this.threads = threads;
+        this.options = options;
+    }
+
+    public BatchRunner(int threads) {
+        this(threads, new RenderOptions());
+    }
+
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public record BatchResult(Path script, Path output, Exception error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    public List<BatchResult> run(List<Path> scripts, Consumer<BatchResult> listener) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>(scripts.size());
+            for (Path script : scripts) {
+                futures.add(executor.submit(() -> render(script)));
+            }
+            List<BatchResult> results = new ArrayList<>(scripts.size());
+            for (int i = 0; i < futures.size(); i++) {
+                BatchResult result;
+                try {
+                    result = futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    Exception error = cause instanceof Exception exception ? exception : ex;
+                    result = new BatchResult(scripts.get(i), null, error);
+                }
+                results.add(result);
+                listener.accept(result);
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchResult render(Path script) {
+        try {
+            ScriptSource source = ScriptSource.open(script);
+            ScriptRunner runner = new ScriptRunner(options);
+            Path baseDir = script.toAbsolutePath().getParent();
+            return new BatchResult(script, runner.run(source, baseDir), null);
+        } catch (Exception ex) {
+            return new BatchResult(script, null, ex);
+        }
+    }
+
+    public static List<Path> collectScripts(String location) throws IOException {
+        Path path = Path.of(location);
+        if (Files.isDirectory(path)) {
+            return walk(path, file -> file.getFileName().toString().endsWith(SCRIPT_EXTENSION));
+        }
+        int wildcard = firstWildcard(location);
+        if (wildcard < 0) {
+            if (!Files.isRegularFile(path)) {
+                throw new IOException("No such script: " + location);
+            }
+            return List.of(path);
+        }
+        int separator = Math.max(location.lastIndexOf('/', wildcard), location.lastIndexOf('\\', wildcard));
+        Path base = separator < 0 ? Path.of("") : Path.of(location.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + location.substring(separator + 1));
+        return walk(base, file -> matcher.matches(base.relativize(file)));
+    }
+
+    private static List<Path> walk(Path base, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.walk(base)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int firstWildcard(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            char ch = location.charAt(i);
+            if (ch == '*' || ch == '?' || ch == '[' || ch == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,153 @@
+package de.hft_stuttgart.ip1;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class BenchRunner {
+    private static final double MB = 1024.0 * 1024.0;
+
+    public record BenchResult(
+            int iterations,
+            int pagesPerRun,
+            long bytesPerRun,
+            long[] runNanos,
+            long allocatedBytes,
+            int gcCount,
+            Duration gcPauseTotal,
+            Duration gcPauseMax
+    ) {
+        public long totalNanos() {
+            long total = 0;
+            for (long nanos : runNanos) {
+                total += nanos;
+            }
+            return total;
+        }
+
+        public void print(PrintStream out) {
+            double seconds = totalNanos() / 1e9;
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (long nanos : runNanos) {
+                min = Math.min(min, nanos);
+                max = Math.max(max, nanos);
+            }
+            out.printf("iterations   %d x %d pages, %.1f KB each%n", iterations, pagesPerRun, bytesPerRun / 1024.0);
+            out.printf("time/run     min %.2f ms, avg %.2f ms, max %.2f ms%n",
+                    min / 1e6, totalNanos() / 1e6 / iterations, max / 1e6);
+            out.printf("throughput   %.1f pages/s, %.2f MB/s written%n",
+                    (double) pagesPerRun * iterations / seconds, bytesPerRun * iterations / MB / seconds);
+            out.printf("allocation   %.1f MB/s, %.1f KB/page%n",
+                    allocatedBytes / MB / seconds, allocatedBytes / 1024.0 / ((double) pagesPerRun * iterations));
+            out.printf("gc           %d pauses, %.1f ms total, %.1f ms max%n",
+                    gcCount, gcPauseTotal.toNanos() / 1e6, gcPauseMax.toNanos() / 1e6);
+            out.printf("peak heap    %.1f MB%n", RenderStats.peakHeapBytes() / MB);
+        }
+    }
+
+    private final SyntheticWorkload workload;
+    private final RenderOptions options;
+    private final boolean warmCaches;
+
+    public BenchRunner(SyntheticWorkload workload, RenderOptions options, boolean warmCaches) {
+        this.workload = workload;
+        this.options = options;
+        this.warmCaches = warmCaches;
+    }
+
+    public BenchResult run(int warmup, int iterations, PrintStream log) throws IOException {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Bench requires at least one measured iteration");
+        }
+        Path directory = Files.createTempDirectory("pdfscript-bench");
+        try {
+            workload.writeImages(directory);
+            String script = workload.script();
+            ScriptRunner runner = new ScriptRunner(options);
+            for (int i = 0; i < warmup; i++) {
+                long nanos = render(runner, script, directory, OutputStream.nullOutputStream());
+                log.printf("warmup %d     %.2f ms%n", i + 1, nanos / 1e6);
+            }
+
+            long[] runNanos = new long[iterations];
+            CountingOutputStream output = new CountingOutputStream(OutputStream.nullOutputStream());
+            Path events = directory.resolve("bench.jfr");
+            try (Recording recording = new Recording()) {
+                // Allocation samples are weighted so that they add up to the bytes actually allocated,
+                // which gives a process-wide rate without instrumenting every allocation.
+                recording.enable("jdk.ObjectAllocationSample").with("throttle", "1000/s");
+                recording.enable("jdk.GarbageCollection");
+                recording.start();
+                for (int i = 0; i < iterations; i++) {
+                    runNanos[i] = render(runner, script, directory, output);
+                }
+                recording.stop();
+                recording.dump(events);
+            }
+            return summarize(iterations, output.getCount() / iterations, runNanos, events);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private long render(ScriptRunner runner, String script, Path baseDir, OutputStream output) throws IOException {
+        if (warmCaches) {
+            long start = System.nanoTime();
+            runner.run(script, baseDir, Map.of(), output);
+            return System.nanoTime() - start;
+        }
+        // Identical runs would otherwise hit the shared template and raster caches after the first one,
+        // and the figures would leave out parsing and image decoding.
+        RasterCache.shared().clear();
+        long start = System.nanoTime();
+        if (options.isStreamingParse()) {
+            runner.run(script, baseDir, Map.of(), output);
+        } else {
+            runner.run(ScriptTemplate.compile(script), baseDir, Map.of(), output);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private BenchResult summarize(int iterations, long bytesPerRun, long[] runNanos, Path events) throws IOException {
+        long allocated = 0;
+        int gcCount = 0;
+        Duration pauseTotal = Duration.ZERO;
+        Duration pauseMax = Duration.ZERO;
+        for (RecordedEvent event : RecordingFile.readAllEvents(events)) {
+            switch (event.getEventType().getName()) {
+                case "jdk.ObjectAllocationSample" -> allocated += event.getLong("weight");
+                case "jdk.GarbageCollection" -> {
+                    gcCount++;
+                    pauseTotal = pauseTotal.plus(event.getDuration("sumOfPauses"));
+                    Duration longest = event.getDuration("longestPause");
+                    if (longest.compareTo(pauseMax) > 0) {
+                        pauseMax = longest;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new BenchResult(iterations, workload.expectedPages(), bytesPerRun, runNanos,
+                allocated, gcCount, pauseTotal, pauseMax);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
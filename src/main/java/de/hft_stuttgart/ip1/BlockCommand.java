@@ -0,0 +1,22 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.util.List;
+
+public record BlockCommand(
+        TemplateText name,
+        TemplateNumber width,
+        TemplateNumber height,
+        List<ScriptCommand> commands
+) implements ScriptCommand {
+    @Override
+    public void execute(PdfContext context) throws IOException {
+        BlockRenderer.defineBlock(
+                context,
+                name.resolve(context),
+                width.resolve(context),
+                height.resolve(context),
+                commands
+        );
+    }
+}
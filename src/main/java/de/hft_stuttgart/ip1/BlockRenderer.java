@@ -0,0 +1,56 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.util.List;
+
+public class BlockRenderer {
+    public static void defineBlock(
+            PdfContext context,
+            String name,
+            float width,
+            float height,
+            List<ScriptCommand> commands
+    ) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Block " + name + " requires a positive size");
+        }
+        PDDocument document = context.requireDocument();
+        // Pages rendered in parallel share the document, which is not safe for concurrent stream creation.
+        synchronized (document) {
+            // An appearance stream is a Form XObject that PDPageContentStream can draw into.
+            PDAppearanceStream form = new PDAppearanceStream(document);
+            form.setBBox(new PDRectangle(width, height));
+            form.setResources(new PDResources());
+            try (PdfContext blockContext = context.forBlock(form)) {
+                for (ScriptCommand command : commands) {
+                    command.execute(blockContext);
+                }
+                blockContext.completeTable();
+            }
+            context.putBlock(name, form);
+        }
+    }
+
+    public static void stampBlock(PdfContext context, Float x, Float y, String name) throws IOException {
+        if (x == null || y == null) {
+            throw new IOException("Stamp requires a position");
+        }
+        PDFormXObject form = context.getBlock(name);
+        if (form == null) {
+            throw new IOException("Unknown block: " + name);
+        }
+        PDPageContentStream contentStream = context.getContentStream();
+        contentStream.saveGraphicsState();
+        contentStream.transform(Matrix.getTranslateInstance(x, context.toPdfY(y) - form.getBBox().getHeight()));
+        contentStream.drawForm(form);
+        contentStream.restoreGraphicsState();
+    }
+}
@@ -0,0 +1,19 @@
+package de.hft_stuttgart.ip1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.hft_stuttgart.ip1.Command")
+@Label("Script Command")
+@Description("Execution of one script command")
+@Category("PDF Script")
+public class CommandEvent extends Event {
+    @Label("Command")
+    String kind;
+
+    @Label("Line")
+    int line;
+}
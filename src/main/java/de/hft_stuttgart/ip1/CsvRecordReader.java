@@ -0,0 +1,116 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CsvRecordReader implements RecordReader {
+    private final Reader reader;
+    private final List<String> header;
+    private int pending = -2;
+    private long line = 1;
+
+    public CsvRecordReader(Reader reader) throws IOException {
+        this.reader = reader;
+        List<String> names = readRow();
+        if (names == null) {
+            throw new IOException("CSV data source has no header row");
+        }
+        for (int i = 0; i < names.size(); i++) {
+            names.set(i, names.get(i).trim());
+        }
+        this.header = names;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isEmpty());
+        if (row.size() > header.size()) {
+            throw new IOException("CSV line " + line + " has " + row.size() + " fields but the header has " + header.size());
+        }
+        Map<String, String> record = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            record.put(header.get(i), i < row.size() ? row.get(i) : "");
+        }
+        return record;
+    }
+
+    private List<String> readRow() throws IOException {
+        int ch = read();
+        if (ch < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (ch < 0) {
+                    throw new IOException("Unterminated quoted field in CSV line " + line);
+                }
+                if (ch == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        ch = following;
+                        continue;
+                    }
+                } else {
+                    if (ch == '\n') {
+                        line++;
+                    }
+                    field.append((char) ch);
+                }
+            } else if (ch < 0 || ch == '\n') {
+                fields.add(field.toString());
+                line++;
+                return fields;
+            } else if (ch == '\r') {
+                int following = read();
+                if (following != '\n') {
+                    unread(following);
+                }
+                fields.add(field.toString());
+                line++;
+                return fields;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) ch);
+            }
+            ch = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int ch = pending;
+            pending = -2;
+            return ch;
+        }
+        return reader.read();
+    }
+
+    private void unread(int ch) {
+        pending = ch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,73 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class FontFileCache {
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final FontFileCache SHARED = new FontFileCache(Integer.getInteger("pdfscript.fontCacheSize", DEFAULT_CAPACITY));
+
+    private record FontFileKey(Path path, long lastModified, long size) {
+    }
+
+    private final Map<FontFileKey, byte[]> fonts;
+
+    public FontFileCache(int capacity) {
+        this.fonts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FontFileKey, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static FontFileCache shared() {
+        return SHARED;
+    }
+
+    public static boolean isFontFile(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".ttf") || lower.endsWith(".otf");
+    }
+
+    public TrueTypeFont load(Path path) throws IOException {
+        FontFileKey key = new FontFileKey(path, Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+        byte[] bytes;
+        synchronized (fonts) {
+            bytes = fonts.get(key);
+        }
+        if (bytes == null) {
+            bytes = Files.readAllBytes(path);
+            synchronized (fonts) {
+                byte[] raced = fonts.putIfAbsent(key, bytes);
+                bytes = raced != null ? raced : bytes;
+            }
+        }
+        // Only the bytes are shared: PDFBox closes an embedded font after subsetting it,
+        // so every document gets a font object of its own, parsed from memory.
+        return parse(path, bytes);
+    }
+
+    public int size() {
+        synchronized (fonts) {
+            return fonts.size();
+        }
+    }
+
+    private static TrueTypeFont parse(Path path, byte[] bytes) throws IOException {
+        RandomAccessReadBuffer data = new RandomAccessReadBuffer(bytes);
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".otf")) {
+            return new OTFParser().parse(data);
+        }
+        return new TTFParser().parse(data);
+    }
+}
@@ -0,0 +1,81 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FontRegistry {
+    private record FontKey(String family, String style) {
+    }
+
+    private final Map<FontKey, MeasuredFont> fontsByKey = new HashMap<>();
+    private final Map<String, MeasuredFont> fontsByName = new HashMap<>();
+    private final Map<Path, MeasuredFont> fontsByFile = new HashMap<>();
+    private final RenderStats stats;
+
+    public FontRegistry(RenderStats stats) {
+        this.stats = stats;
+    }
+
+    public FontRegistry() {
+        this(null);
+    }
+
+    public synchronized MeasuredFont resolve(String name, String style) throws IOException {
+        FontKey key = new FontKey(name.toLowerCase(), style.toLowerCase());
+        MeasuredFont cached = fontsByKey.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        try (PhaseTimer ignored = PhaseTimer.start("font", stats)) {
+            PDFont font = PdfFonts.resolve(key.family(), key.style()).font();
+            MeasuredFont measured = fontsByName.get(font.getName());
+            if (measured == null) {
+                measured = new MeasuredFont(font);
+                fontsByName.put(font.getName(), measured);
+            }
+            fontsByKey.put(key, measured);
+            return measured;
+        }
+    }
+
+    public synchronized MeasuredFont resolveFile(PDDocument document, Path path) throws IOException {
+        MeasuredFont cached = fontsByFile.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        try (PhaseTimer ignored = PhaseTimer.start("font", stats)) {
+            TrueTypeFont parsed = FontFileCache.shared().load(path);
+            if (parsed instanceof OpenTypeFont openType && openType.isPostScript()) {
+                parsed.close();
+                throw new IOException("OpenType fonts with CFF outlines cannot be embedded: " + path);
+            }
+            PDType0Font font;
+            synchronized (document) {
+                // Only the glyphs shown in this document end up in the embedded subset.
+                font = PDType0Font.load(document, parsed, true);
+            }
+            MeasuredFont measured = new MeasuredFont(font);
+            fontsByFile.put(path, measured);
+            fontsByName.put(path.toString(), measured);
+            return measured;
+        }
+    }
+
+    public synchronized int size() {
+        return fontsByName.size();
+    }
+
+    public synchronized List<MeasuredFont> getFonts() {
+        return new ArrayList<>(fontsByName.values());
+    }
+}
@@ -0,0 +1,53 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FragmentCache {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final FragmentCache SHARED = new FragmentCache(Integer.getInteger("pdfscript.fragmentCacheSize", DEFAULT_CAPACITY));
+
+    private record FragmentKey(Path path, long lastModified, long size) {
+    }
+
+    private final Map<FragmentKey, ScriptTemplate> fragments;
+
+    public FragmentCache(int capacity) {
+        this.fragments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FragmentKey, ScriptTemplate> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static FragmentCache shared() {
+        return SHARED;
+    }
+
+    public ScriptTemplate load(Path path) throws IOException {
+        FragmentKey key = new FragmentKey(path, Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+        synchronized (fragments) {
+            ScriptTemplate cached = fragments.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Parse outside the lock; a concurrent duplicate parse yields an equivalent fragment.
+        // Read rather than mapped: fragments are small, and a mapping would keep the file locked on Windows.
+        ScriptTemplate fragment = ScriptTemplate.compile(ScriptSource.wrap(Files.readAllBytes(path)));
+        synchronized (fragments) {
+            ScriptTemplate raced = fragments.putIfAbsent(key, fragment);
+            return raced != null ? raced : fragment;
+        }
+    }
+
+    public int size() {
+        synchronized (fragments) {
+            return fragments.size();
+        }
+    }
+}
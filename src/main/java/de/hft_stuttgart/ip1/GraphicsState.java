@@ -0,0 +1,53 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.awt.*;
+import java.io.IOException;
+
+public class GraphicsState {
+    private final PDPageContentStream contentStream;
+    private PDFont font;
+    private float fontSize = Float.NaN;
+    private Color nonStrokingColor;
+    private Color strokingColor;
+    private float lineWidth = Float.NaN;
+
+    public GraphicsState(PDPageContentStream contentStream) {
+        this.contentStream = contentStream;
+    }
+
+    public PDPageContentStream getContentStream() {
+        return contentStream;
+    }
+
+    public void setFont(PDFont font, float fontSize) throws IOException {
+        if (font != this.font || fontSize != this.fontSize) {
+            contentStream.setFont(font, fontSize);
+            this.font = font;
+            this.fontSize = fontSize;
+        }
+    }
+
+    public void setNonStrokingColor(Color color) throws IOException {
+        if (!color.equals(nonStrokingColor)) {
+            contentStream.setNonStrokingColor(color);
+            nonStrokingColor = color;
+        }
+    }
+
+    public void setStrokingColor(Color color) throws IOException {
+        if (!color.equals(strokingColor)) {
+            contentStream.setStrokingColor(color);
+            strokingColor = color;
+        }
+    }
+
+    public void setLineWidth(float lineWidth) throws IOException {
+        if (lineWidth != this.lineWidth) {
+            contentStream.setLineWidth(lineWidth);
+            this.lineWidth = lineWidth;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+public class ImageCache {
+    private record ImageKey(Path path, long lastModified, int maxWidth, int maxHeight) {
+    }
+
+    private record PrefetchKey(Path path, int maxWidth, int maxHeight) {
+    }
+
+    private final ImagePipeline pipeline;
+    private final Map<ImageKey, PDImageXObject> imagesByFile = new HashMap<>();
+    private final Map<String, PDImageXObject> imagesByContent = new HashMap<>();
+    private final Map<PrefetchKey, Future<ImagePipeline.PreparedImage>> prefetched = new HashMap<>();
+    private final Set<PrefetchKey> requested = new HashSet<>();
+    private final RenderStats stats;
+
+    public ImageCache(RasterCache rasters, RenderStats stats) {
+        this.pipeline = new ImagePipeline(rasters);
+        this.stats = stats;
+    }
+
+    public ImageCache(RenderStats stats) {
+        this(RasterCache.shared(), stats);
+    }
+
+    public ImageCache() {
+        this(null);
+    }
+
+    public synchronized void prefetch(Path path, int maxWidth, int maxHeight) {
+        PrefetchKey key = new PrefetchKey(path, maxWidth, maxHeight);
+        if (requested.add(key)) {
+            prefetched.put(key, pipeline.submit(path, maxWidth, maxHeight));
+        }
+    }
+
+    public synchronized void dropPrefetches() {
+        for (Map.Entry<PrefetchKey, Future<ImagePipeline.PreparedImage>> entry : prefetched.entrySet()) {
+            entry.getValue().cancel(false);
+            requested.remove(entry.getKey());
+        }
+        prefetched.clear();
+    }
+
+    public PDImageXObject load(PDDocument document, Path path) throws IOException {
+        return load(document, path, 0, 0);
+    }
+
+    public PDImageXObject load(PDDocument document, Path path, int maxWidth, int maxHeight) throws IOException {
+        ImageKey key = new ImageKey(path, Files.getLastModifiedTime(path).toMillis(), maxWidth, maxHeight);
+        Future<ImagePipeline.PreparedImage> pending;
+        synchronized (this) {
+            PDImageXObject image = imagesByFile.get(key);
+            if (image != null) {
+                return image;
+            }
+            PrefetchKey prefetchKey = new PrefetchKey(path, maxWidth, maxHeight);
+            requested.add(prefetchKey);
+            pending = prefetched.remove(prefetchKey);
+        }
+        PDImageXObject image;
+        if (pending != null) {
+            try (PhaseTimer ignored = PhaseTimer.start("image", stats)) {
+                image = create(document, path, ImagePipeline.await(pending), maxWidth, maxHeight);
+            }
+        } else {
+            image = loadNow(document, path, maxWidth, maxHeight);
+        }
+        synchronized (this) {
+            imagesByFile.put(key, image);
+        }
+        return image;
+    }
+
+    private PDImageXObject loadNow(PDDocument document, Path path, int maxWidth, int maxHeight) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        String hash = ContentHash.of(bytes);
+        synchronized (this) {
+            PDImageXObject image = imagesByContent.get(contentKey(hash, maxWidth, maxHeight));
+            if (image != null) {
+                return image;
+            }
+        }
+        try (PhaseTimer ignored = PhaseTimer.start("image", stats)) {
+            // Decoding and resampling need no document, so parallel pages only serialize on stream creation.
+            return create(document, path, pipeline.prepare(bytes, hash, maxWidth, maxHeight), maxWidth, maxHeight);
+        }
+    }
+
+    private PDImageXObject create(
+            PDDocument document,
+            Path path,
+            ImagePipeline.PreparedImage prepared,
+            int maxWidth,
+            int maxHeight
+    ) throws IOException {
+        String contentKey = contentKey(prepared.hash(), maxWidth, maxHeight);
+        PDImageXObject image;
+        synchronized (this) {
+            image = imagesByContent.get(contentKey);
+        }
+        if (image != null) {
+            return image;
+        }
+        // Pages rendered in parallel share the document, which is not safe for concurrent stream creation.
+        synchronized (document) {
+            image = prepared.create(document, path.toString());
+        }
+        synchronized (this) {
+            PDImageXObject raced = imagesByContent.putIfAbsent(contentKey, image);
+            return raced != null ? raced : image;
+        }
+    }
+
+    private static String contentKey(String hash, int maxWidth, int maxHeight) {
+        return hash + '@' + maxWidth + 'x' + maxHeight;
+    }
+}
@@ -0,0 +1,31 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+
+public record ImageCommand(
+        TemplateNumber x,
+        TemplateNumber y,
+        TemplateNumber width,
+        TemplateNumber height,
+        TemplateText path
+) implements ScriptCommand {
+    @Override
+    public void execute(PdfContext context) throws IOException {
+        ImageRenderer.renderImage(
+                context,
+                resolve(context, x),
+                resolve(context, y),
+                resolve(context, width),
+                resolve(context, height),
+                path.resolve(context)
+        );
+    }
+
+    public void prefetch(PdfContext context) throws IOException {
+        ImageRenderer.prefetchImage(context, resolve(context, width), resolve(context, height), path.resolve(context));
+    }
+
+    private static Float resolve(PdfContext context, TemplateNumber value) throws IOException {
+        return value == null ? null : value.resolve(context);
+    }
+}
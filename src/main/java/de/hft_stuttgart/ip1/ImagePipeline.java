@@ -0,0 +1,222 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ImagePipeline {
+    private static final float DOWNSAMPLE_THRESHOLD = 1.5f;
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final ExecutorService EXECUTOR = newDaemonPool(
+            Integer.getInteger("pdfscript.imageThreads", Runtime.getRuntime().availableProcessors()), "pdfscript-image");
+    // Reads block on the file system rather than the CPU, so they get their own, wider pool.
+    private static final ExecutorService IO_EXECUTOR = newDaemonPool(
+            Integer.getInteger("pdfscript.imageIoThreads", 8), "pdfscript-image-io");
+
+    public record PreparedImage(String hash, byte[] jpeg, BufferedImage raster, byte[] encoded) {
+        public PDImageXObject create(PDDocument document, String name) throws IOException {
+            if (jpeg != null) {
+                return JPEGFactory.createFromByteArray(document, jpeg);
+            }
+            if (raster != null) {
+                return LosslessFactory.createFromImage(document, raster);
+            }
+            // PDFBox copies PNG image data directly when it can, which beats decoding.
+            return PDImageXObject.createFromByteArray(document, encoded, name);
+        }
+    }
+
+    private final RasterCache rasters;
+
+    public ImagePipeline(RasterCache rasters) {
+        this.rasters = rasters;
+    }
+
+    public PreparedImage prepare(byte[] bytes, String hash, int maxWidth, int maxHeight) throws IOException {
+        return await(submit(bytes, hash, maxWidth, maxHeight));
+    }
+
+    public Future<PreparedImage> submit(byte[] bytes, String hash, int maxWidth, int maxHeight) {
+        // A bounded pool also bounds how many full-size photos are decoded at the same time.
+        return EXECUTOR.submit(() -> prepareNow(bytes, hash, maxWidth, maxHeight));
+    }
+
+    public Future<PreparedImage> submit(Path path, int maxWidth, int maxHeight) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, IO_EXECUTOR).thenApplyAsync(bytes -> {
+            try {
+                return prepareNow(bytes, ContentHash.of(bytes), maxWidth, maxHeight);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, EXECUTOR);
+    }
+
+    public static PreparedImage await(Future<PreparedImage> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for image decoding");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (ex.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException("Image decoding failed", ex.getCause());
+        }
+    }
+
+    private PreparedImage prepareNow(byte[] bytes, String hash, int maxWidth, int maxHeight) throws IOException {
+        if (maxWidth > 0 && maxHeight > 0) {
+            // Resampled rasters outlive the document, so later runs in this JVM skip the decode.
+            String rasterKey = hash + '@' + maxWidth + 'x' + maxHeight;
+            BufferedImage downsampled = rasters.get(rasterKey);
+            if (downsampled == null) {
+                downsampled = downsample(bytes, maxWidth, maxHeight);
+                if (downsampled != null) {
+                    rasters.put(rasterKey, downsampled);
+                }
+            }
+            if (downsampled != null) {
+                return isJpeg(bytes)
+                        ? new PreparedImage(hash, encodeJpeg(downsampled), null, null)
+                        : new PreparedImage(hash, null, downsampled, null);
+            }
+        }
+        if (isJpeg(bytes)) {
+            return new PreparedImage(hash, bytes, null, null);
+        }
+        if (isPng(bytes)) {
+            return new PreparedImage(hash, null, null, bytes);
+        }
+        BufferedImage raster = rasters.get(hash);
+        if (raster == null) {
+            raster = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (raster == null) {
+                return new PreparedImage(hash, null, null, bytes);
+            }
+            rasters.put(hash, raster);
+        }
+        return new PreparedImage(hash, null, raster, null);
+    }
+
+    private static BufferedImage downsample(byte[] bytes, int maxWidth, int maxHeight) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height <= DOWNSAMPLE_THRESHOLD * maxWidth * maxHeight) {
+                    return null;
+                }
+                int targetWidth = Math.min(width, maxWidth);
+                int targetHeight = Math.min(height, maxHeight);
+                // Subsampling while decoding keeps the full-size raster of large photos out of the heap;
+                // it stops at twice the target so the final filtering pass still has pixels to average.
+                int step = Math.max(1, Math.min(width / targetWidth, height / targetHeight) / 2);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded;
+                try {
+                    decoded = reader.read(0, param);
+                } catch (IOException ex) {
+                    // ImageIO cannot decode everything PDF can embed (CMYK JPEGs, for example); keep the original.
+                    return null;
+                }
+                return scale(decoded, targetWidth, targetHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                : source.getColorModel().getNumComponents() == 1 ? BufferedImage.TYPE_BYTE_GRAY
+                : BufferedImage.TYPE_INT_RGB;
+        do {
+            // Halving per step keeps bilinear filtering from skipping source pixels.
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ExecutorService newDaemonPool(int threads, String name) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static boolean isJpeg(byte[] bytes) {
+        return bytes.length > 2 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xd8 && (bytes[2] & 0xff) == 0xff;
+    }
+
+    private static boolean isPng(byte[] bytes) {
+        return bytes.length > 4 && (bytes[0] & 0xff) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G';
+    }
+}
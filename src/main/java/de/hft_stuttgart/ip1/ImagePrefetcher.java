@@ -0,0 +1,48 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+public class ImagePrefetcher {
+    private final List<ScriptCommand> commands;
+    private final int window;
+    private final Deque<Integer> inFlight = new ArrayDeque<>();
+    private int cursor;
+
+    public ImagePrefetcher(List<ScriptCommand> commands, int window) {
+        this.commands = commands;
+        this.window = window;
+    }
+
+    public void advance(PdfContext context, int executed) {
+        // The window bounds how many decoded images wait in memory ahead of the render thread.
+        while (!inFlight.isEmpty() && inFlight.peekFirst() < executed) {
+            inFlight.pollFirst();
+        }
+        while (cursor < commands.size() && inFlight.size() < window) {
+            // An output command can change the image DPI, so images behind it wait until it has run.
+            if (cursor >= executed && "output".equals(ScriptRunner.kindOf(commands.get(cursor)))) {
+                break;
+            }
+            if (prefetch(context, commands.get(cursor))) {
+                inFlight.add(cursor);
+            }
+            cursor++;
+        }
+    }
+
+    public static boolean prefetch(PdfContext context, ScriptCommand command) {
+        ScriptCommand delegate = command instanceof TracedCommand traced ? traced.delegate() : command;
+        if (!(delegate instanceof ImageCommand image)) {
+            return false;
+        }
+        try {
+            image.prefetch(context);
+        } catch (IOException ignored) {
+            // The image command reports the problem when it executes.
+        }
+        return true;
+    }
+}
@@ -19,10 +19,26 @@ public class ImageRenderer {
             throw new IOException("Image requires a position");
         }
         Path resolved = context.resolvePath(path);
-        PDImageXObject image = PDImageXObject.createFromFile(resolved.toString(), context.getDocument());
+        context.addDependency(resolved);
+        PDPageContentStream contentStream = context.getContentStream();
+        int dpi = downsampleDpi(context, width, height);
+        PDImageXObject image = context.getImages().load(
+                context.getDocument(), resolved, pixelsAt(width, dpi), pixelsAt(height, dpi));
         float drawWidth = width == null ? image.getWidth() : width;
         float drawHeight = height == null ? image.getHeight() : height;
-        PDPageContentStream contentStream = context.getContentStream();
         contentStream.drawImage(image, x, context.toPdfY(y) - drawHeight, drawWidth, drawHeight);
     }
+
+    public static void prefetchImage(PdfContext context, Float width, Float height, String path) throws IOException {
+        int dpi = downsampleDpi(context, width, height);
+        context.getImages().prefetch(context.resolvePath(path), pixelsAt(width, dpi), pixelsAt(height, dpi));
+    }
+
+    private static int downsampleDpi(PdfContext context, Float width, Float height) {
+        return width == null || height == null ? 0 : context.getOutputSettings().imageDpi();
+    }
+
+    private static int pixelsAt(Float points, int dpi) {
+        return dpi == 0 ? 0 : Math.max(1, (int) Math.ceil(points * dpi / 72f));
+    }
 }
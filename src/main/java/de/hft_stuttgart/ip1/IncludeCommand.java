@@ -0,0 +1,50 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public record IncludeCommand(TemplateText path) implements ScriptCommand {
+    public static final int MAX_DEPTH = 16;
+
+    @Override
+    public void execute(PdfContext context) throws IOException {
+        for (ScriptCommand command : load(context, 1)) {
+            command.execute(context);
+        }
+    }
+
+    public static List<ScriptCommand> expand(List<ScriptCommand> commands, PdfContext context) throws IOException {
+        return expand(commands, context, 0);
+    }
+
+    private static List<ScriptCommand> expand(List<ScriptCommand> commands, PdfContext context, int depth)
+            throws IOException {
+        // Scripts without includes are returned as they are, without copying.
+        List<ScriptCommand> expanded = null;
+        for (int i = 0; i < commands.size(); i++) {
+            ScriptCommand command = commands.get(i);
+            ScriptCommand delegate = command instanceof TracedCommand traced ? traced.delegate() : command;
+            if (delegate instanceof IncludeCommand include) {
+                if (expanded == null) {
+                    expanded = new ArrayList<>(commands.subList(0, i));
+                }
+                expanded.addAll(include.load(context, depth + 1));
+            } else if (expanded != null) {
+                expanded.add(command);
+            }
+        }
+        return expanded == null ? commands : expanded;
+    }
+
+    private List<ScriptCommand> load(PdfContext context, int depth) throws IOException {
+        Path resolved = context.resolvePath(path.resolve(context));
+        context.addDependency(resolved);
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Includes nested deeper than " + MAX_DEPTH + " at " + resolved
+                    + "; does a fragment include itself?");
+        }
+        return expand(FragmentCache.shared().load(resolved).getCommands(), context, depth);
+    }
+}
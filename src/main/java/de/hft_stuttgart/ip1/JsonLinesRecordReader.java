@@ -0,0 +1,167 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class JsonLinesRecordReader implements RecordReader {
+    private final BufferedReader reader;
+    private long lineNumber;
+    private String line;
+    private int index;
+
+    public JsonLinesRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        index = 0;
+        Map<String, String> record = new LinkedHashMap<>();
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            return record;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            String value = readValue();
+            if (value != null) {
+                record.put(key, value);
+            }
+            skipWhitespace();
+            char separator = peek();
+            index++;
+            if (separator == '}') {
+                return record;
+            }
+            if (separator != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private String readValue() throws IOException {
+        char ch = peek();
+        if (ch == '"') {
+            return readString();
+        }
+        if (ch == '{' || ch == '[') {
+            // Nested values are handed to the template as their raw JSON text.
+            int start = index;
+            skipNested();
+            return line.substring(start, index);
+        }
+        int start = index;
+        while (index < line.length() && ",}] \t".indexOf(line.charAt(index)) < 0) {
+            index++;
+        }
+        String literal = line.substring(start, index);
+        if (literal.isEmpty()) {
+            throw error("Expected value");
+        }
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder builder = new StringBuilder();
+        while (index < line.length()) {
+            char ch = line.charAt(index++);
+            if (ch == '"') {
+                return builder.toString();
+            }
+            if (ch != '\\') {
+                builder.append(ch);
+                continue;
+            }
+            if (index >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(index++);
+            switch (escaped) {
+                case 'n' -> builder.append('\n');
+                case 't' -> builder.append('\t');
+                case 'r' -> builder.append('\r');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'u' -> {
+                    if (index + 4 > line.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(line.substring(index, index + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    index += 4;
+                }
+                default -> builder.append(escaped);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipNested() throws IOException {
+        int depth = 0;
+        while (index < line.length()) {
+            char ch = line.charAt(index);
+            if (ch == '"') {
+                readString();
+                continue;
+            }
+            index++;
+            if (ch == '{' || ch == '[') {
+                depth++;
+            } else if (ch == '}' || ch == ']') {
+                depth--;
+                if (depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("Unterminated nested value");
+    }
+
+    private void skipWhitespace() {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+    }
+
+    private char peek() throws IOException {
+        if (index >= line.length()) {
+            throw error("Unexpected end of line");
+        }
+        return line.charAt(index);
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        index++;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " in JSON line " + lineNumber + " at column " + (index + 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
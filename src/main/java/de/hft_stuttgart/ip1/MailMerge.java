@@ -0,0 +1,112 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public class MailMerge {
+    private final ScriptTemplate template;
+    private final Path baseDir;
+    private final RenderOptions options;
+    private final int threads;
+
+    public MailMerge(ScriptTemplate template, Path baseDir, RenderOptions options, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Mail merge requires at least one worker thread");
+        }
+        this.template = template;
+        this.baseDir = baseDir;
+        this.options = options;
+        this.threads = threads;
+    }
+
+    public record MergeResult(long record, Path output, Exception error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    public long renderEach(RecordReader records, Consumer<MergeResult> listener) throws IOException, InterruptedException {
+        for (TemplateText output : template.getOutputFiles()) {
+            if (output.isConstant()) {
+                // Every worker would write the same file at the same time.
+                throw new IOException("Output file \"" + output + "\" has no ${...} placeholder, so all records would"
+                        + " overwrite it; name it per record or use --single to merge them into one document");
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Only a few records are read ahead of the workers, so memory does not grow with the data source.
+        int window = threads * 2;
+        Deque<Future<MergeResult>> inFlight = new ArrayDeque<>(window);
+        long failures = 0;
+        try {
+            long index = 0;
+            Map<String, String> record;
+            while ((record = records.next()) != null) {
+                if (inFlight.size() >= window) {
+                    failures += report(inFlight.poll(), listener);
+                }
+                long recordIndex = index++;
+                Map<String, String> parameters = record;
+                inFlight.add(executor.submit(() -> renderRecord(recordIndex, parameters)));
+            }
+            while (!inFlight.isEmpty()) {
+                failures += report(inFlight.poll(), listener);
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public Path renderInto(RecordReader records) throws IOException {
+        try (PdfContext context = new PdfContext(baseDir, options)) {
+            PdfContext.TextState initial = context.getTextState();
+            boolean first = true;
+            Map<String, String> record;
+            while ((record = records.next()) != null) {
+                context.setParameters(record);
+                if (!first) {
+                    context.newPage();
+                    // Each record starts from the script's own defaults, not the previous record's font and colour.
+                    context.setFont(initial.font(), initial.fontSize(), initial.textColor());
+                }
+                for (ScriptCommand command : template.getCommands()) {
+                    // The document and its settings are fixed by the first record.
+                    if (first || !"output".equals(ScriptRunner.kindOf(command))) {
+                        command.execute(context);
+                    }
+                }
+                first = false;
+            }
+            return context.finish();
+        }
+    }
+
+    private MergeResult renderRecord(long index, Map<String, String> parameters) {
+        try {
+            ScriptRunner runner = new ScriptRunner(options);
+            return new MergeResult(index, runner.run(template, baseDir, parameters), null);
+        } catch (Exception ex) {
+            return new MergeResult(index, null, ex);
+        }
+    }
+
+    private static int report(Future<MergeResult> future, Consumer<MergeResult> listener) throws InterruptedException {
+        MergeResult result;
+        try {
+            result = future.get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Mail merge worker failed", ex.getCause());
+        }
+        listener.accept(result);
+        return result.isSuccess() ? 0 : 1;
+    }
+}
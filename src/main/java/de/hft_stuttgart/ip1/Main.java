@@ -1,24 +1,442 @@
 package de.hft_stuttgart.ip1;
 
+
 import javax.swing.*;
 import java.awt.*;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Main {
-    public static void main(String[] args) throws IOException {
-        if (args.length > 0) {
-            Path scriptPath = Path.of(args[0]);
-            String script = Files.readString(scriptPath);
-            ScriptRunner runner = new ScriptRunner();
-            runner.run(script, scriptPath.getParent());
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String command = args.length > 0 ? args[0] : "";
+        try {
+            switch (command) {
+                case "batch" -> System.exit(runBatch(args));
+                case "merge" -> System.exit(runMerge(args));
+                case "bench" -> System.exit(runBench(args));
+                case "serve" -> runServer(args);
+                case "" -> EventQueue.invokeLater(() -> {
+                    ScriptEditor editor = new ScriptEditor();
+                    editor.setVisible(true);
+                });
+                default -> runScript(args);
+            }
+        } catch (UsageException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(usage(command));
+            System.exit(2);
+        }
+    }
+
+    private static String usage(String command) {
+        return switch (command) {
+            case "batch" -> "Usage: batch <directory|glob> [--threads N] [--memory MB] [--stream] [--parse-ahead N]"
+                    + " [--page-threads N] [--profile fastest|smallest] [--flate-level N] [--object-streams N|off]"
+                    + " [--image-dpi N|off] [--stats]";
+            case "merge" -> "Usage: merge <script> <data.csv|data.jsonl> [--single] [--threads N] [--memory MB] [--stats]";
+            case "bench" -> "Usage: bench [--pages N] [--prints N] [--table ROWSxCOLUMNS] [--images N]"
+                    + " [--distinct-images N] [--image-size WxH] [--warmup N] [--iterations N] [--warm-caches]"
+                    + " [--page-threads N] [--stream] [--profile fastest|smallest] [--image-dpi N|off] [--stats]";
+            case "serve" -> "Usage: serve [--host HOST] [--port N] [--concurrency N] [--queue N] [--max-script MB]"
+                    + " [--base DIR] [--memory MB] [--page-threads N] [--profile fastest|smallest] [--stats]";
+            default -> "Usage: <script> [--output FILE|-] [--watch] [--param NAME=VALUE] [--memory MB] [--stream]"
+                    + " [--page-threads N] [--profile fastest|smallest] [--flate-level N] [--image-dpi N|off] [--stats]";
+        };
+    }
+
+    private static void runScript(String[] args) throws IOException, InterruptedException {
+        RenderOptions options = new RenderOptions();
+        Map<String, String> parameters = new HashMap<>();
+        Path scriptPath = null;
+        String output = null;
+        boolean watch = false;
+        for (int i = 0; i < args.length; i++) {
+            int next = applyOption(args, i, options);
+            if (next >= 0) {
+                i = next;
+            } else if ("--output".equals(args[i]) || "-o".equals(args[i])) {
+                output = optionValue(args, i++);
+            } else if ("--watch".equals(args[i])) {
+                watch = true;
+            } else if ("--param".equals(args[i])) {
+                String parameter = optionValue(args, i++);
+                int separator = parameter.indexOf('=');
+                if (separator < 0) {
+                    throw new UsageException("Expected name=value for --param but got " + parameter);
+                }
+                parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+            } else {
+                scriptPath = Path.of(args[i]);
+            }
+        }
+        if (scriptPath == null) {
+            throw new UsageException("No script given");
+        }
+        ScriptRunner runner = new ScriptRunner(options);
+        Path baseDir = scriptPath.toAbsolutePath().getParent();
+        if (watch) {
+            if ("-".equals(output)) {
+                throw new UsageException("--watch needs an output file, not stdout");
+            }
+            Path watchedScript = scriptPath;
+            String watchedOutput = output;
+            new ScriptWatcher(scriptPath, options, System.out).run(() -> {
+                try {
+                    // Editors truncate and rewrite the script, which a memory mapping would not survive.
+                    ScriptSource script = ScriptSource.wrap(Files.readAllBytes(watchedScript));
+                    render(runner, script, baseDir, parameters, watchedOutput);
+                } finally {
+                    printStats(options);
+                }
+            });
             return;
         }
+        try {
+            render(runner, ScriptSource.open(scriptPath), baseDir, parameters, output);
+        } finally {
+            printStats(options);
+        }
+    }
+
+    private static void render(
+            ScriptRunner runner,
+            ScriptSource script,
+            Path baseDir,
+            Map<String, String> parameters,
+            String output
+    ) throws IOException {
+        if (output == null) {
+            runner.run(script, baseDir, parameters);
+        } else if ("-".equals(output)) {
+            // Bypass System.out so the PDF bytes are not funneled through a PrintStream.
+            // Closing would close fd 1 as well, and later stats or batch output would be lost.
+            try (OutputStream stdout = new NonClosingOutputStream(new FileOutputStream(FileDescriptor.out))) {
+                runner.run(script, baseDir, parameters, stdout);
+            }
+        } else {
+            try (OutputStream file = Files.newOutputStream(Path.of(output))) {
+                runner.run(script, baseDir, parameters, file);
+            }
+        }
+    }
 
-        EventQueue.invokeLater(() -> {
-            ScriptEditor editor = new ScriptEditor();
-            editor.setVisible(true);
+    private static int runBatch(String[] args) throws IOException, InterruptedException {
+        RenderOptions options = new RenderOptions();
+        String location = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            int next = applyOption(args, i, options);
+            if (next >= 0) {
+                i = next;
+            } else if ("--threads".equals(args[i])) {
+                threads = intOption(args, i);
+                i++;
+            } else {
+                location = args[i];
+            }
+        }
+        if (location == null || threads <= 0) {
+            System.err.println(usage("batch"));
+            return 2;
+        }
+
+        List<Path> scripts = BatchRunner.collectScripts(location);
+        List<BatchRunner.BatchResult> results = new BatchRunner(threads, options).run(scripts, result -> {
+            if (result.isSuccess()) {
+                System.out.println("OK     " + result.script() + " -> " + result.output());
+            } else {
+                System.err.println("FAILED " + result.script() + ": " + result.error().getMessage());
+            }
         });
+        long failures = results.stream().filter(result -> !result.isSuccess()).count();
+        System.out.println(results.size() + " scripts, " + failures + " failed");
+        printStats(options);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static int runMerge(String[] args) throws IOException, InterruptedException {
+        RenderOptions options = new RenderOptions();
+        Path scriptPath = null;
+        Path dataPath = null;
+        boolean single = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            int next = applyOption(args, i, options);
+            if (next >= 0) {
+                i = next;
+            } else if ("--threads".equals(args[i])) {
+                threads = intOption(args, i);
+                i++;
+            } else if ("--single".equals(args[i])) {
+                single = true;
+            } else if (scriptPath == null) {
+                scriptPath = Path.of(args[i]);
+            } else {
+                dataPath = Path.of(args[i]);
+            }
+        }
+        if (scriptPath == null || dataPath == null || threads <= 0) {
+            System.err.println(usage("merge"));
+            return 2;
+        }
+
+        ScriptTemplate template;
+        try (PhaseTimer ignored = PhaseTimer.start("parse", options.getStats())) {
+            template = TemplateCache.shared().compile(ScriptSource.open(scriptPath));
+        }
+        MailMerge merge = new MailMerge(template, scriptPath.toAbsolutePath().getParent(), options, threads);
+        try (RecordReader records = RecordReader.open(dataPath)) {
+            if (single) {
+                System.out.println("OK     " + merge.renderInto(records));
+                return 0;
+            }
+            long failures = merge.renderEach(records, result -> {
+                if (result.isSuccess()) {
+                    System.out.println("OK     record " + result.record() + " -> " + result.output());
+                } else {
+                    System.err.println("FAILED record " + result.record() + ": " + result.error().getMessage());
+                }
+            });
+            return failures == 0 ? 0 : 1;
+        } finally {
+            printStats(options);
+        }
+    }
+
+    private static int runBench(String[] args) throws IOException {
+        RenderOptions options = new RenderOptions();
+        int pages = 50;
+        int prints = 40;
+        int tableRows = 0;
+        int tableColumns = 0;
+        int images = 0;
+        int distinctImages = 0;
+        int imageWidth = 1200;
+        int imageHeight = 900;
+        int warmup = 5;
+        int iterations = 10;
+        boolean warmCaches = false;
+        for (int i = 1; i < args.length; i++) {
+            int next = applyOption(args, i, options);
+            if (next >= 0) {
+                i = next;
+                continue;
+            }
+            switch (args[i]) {
+                case "--pages" -> pages = intOption(args, i++);
+                case "--prints" -> prints = intOption(args, i++);
+                case "--table" -> {
+                    int[] size = parseSize(args, i++);
+                    tableRows = size[0];
+                    tableColumns = size[1];
+                }
+                case "--images" -> images = intOption(args, i++);
+                case "--distinct-images" -> distinctImages = intOption(args, i++);
+                case "--image-size" -> {
+                    int[] size = parseSize(args, i++);
+                    imageWidth = size[0];
+                    imageHeight = size[1];
+                }
+                case "--warmup" -> warmup = intOption(args, i++);
+                case "--iterations" -> iterations = intOption(args, i++);
+                case "--warm-caches" -> warmCaches = true;
+                default -> {
+                    System.err.println(usage("bench"));
+                    return 2;
+                }
+            }
+        }
+
+        if (iterations <= 0) {
+            throw new UsageException("Bench requires at least one measured iteration");
+        }
+        SyntheticWorkload workload;
+        try {
+            workload = new SyntheticWorkload(pages, prints, tableRows, tableColumns, images,
+                    distinctImages > 0 ? distinctImages : images, imageWidth, imageHeight);
+        } catch (IllegalArgumentException ex) {
+            throw new UsageException(ex.getMessage());
+        }
+        System.out.printf("workload     %d pages, %d prints/page, table %dx%d, %d images/page%n",
+                pages, prints, tableRows, tableColumns, images);
+        System.out.println("caches       " + (warmCaches
+                ? "warm (parsed script and decoded images are reused across runs)"
+                : "cold (every run parses the script and decodes its images)"));
+        BenchRunner.BenchResult result = new BenchRunner(workload, options, warmCaches).run(warmup, iterations, System.out);
+        result.print(System.out);
+        printStats(options);
+        return 0;
+    }
+
+    private static int[] parseSize(String[] args, int index) {
+        String value = optionValue(args, index);
+        int separator = value.toLowerCase().indexOf('x');
+        if (separator < 0) {
+            throw new UsageException("Expected AxB for " + args[index] + " but got " + value);
+        }
+        return new int[]{
+                parseNumber(args[index], value.substring(0, separator)),
+                parseNumber(args[index], value.substring(separator + 1))
+        };
+    }
+
+    private static void runServer(String[] args) throws IOException {
+        RenderOptions options = new RenderOptions();
+        String host = "127.0.0.1";
+        int port = 8080;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        int queueLimit = 256;
+        int maxScriptMegabytes = 16;
+        Path baseDir = Path.of("").toAbsolutePath();
+        for (int i = 1; i < args.length; i++) {
+            int next = applyOption(args, i, options);
+            if (next >= 0) {
+                i = next;
+                continue;
+            }
+            switch (args[i]) {
+                case "--host" -> host = optionValue(args, i++);
+                case "--port" -> port = intOption(args, i++);
+                case "--concurrency" -> concurrency = intOption(args, i++);
+                case "--queue" -> queueLimit = intOption(args, i++);
+                case "--max-script" -> maxScriptMegabytes = intOption(args, i++);
+                case "--base" -> baseDir = Path.of(optionValue(args, i++)).toAbsolutePath();
+                default -> throw new UsageException("Unknown serve option: " + args[i]);
+            }
+        }
+
+        if (maxScriptMegabytes > Integer.MAX_VALUE / (1024 * 1024)) {
+            throw new UsageException("--max-script must be below 2048 MB");
+        }
+        RenderServer server;
+        try {
+            server = new RenderServer(new InetSocketAddress(host, port), baseDir, options, concurrency, queueLimit,
+                    maxScriptMegabytes * 1024 * 1024);
+        } catch (IllegalArgumentException ex) {
+            throw new UsageException(ex.getMessage());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Rendering POST requests on http://" + host + ":" + server.getAddress().getPort() + "/render");
+    }
+
+    private static int applyOption(String[] args, int index, RenderOptions options) {
+        try {
+            return applyRenderOption(args, index, options);
+        } catch (IllegalArgumentException ex) {
+            // Out-of-range values are rejected by RenderOptions and OutputSettings.
+            throw new UsageException(ex.getMessage());
+        }
+    }
+
+    private static int applyRenderOption(String[] args, int index, RenderOptions options) {
+        switch (args[index]) {
+            case "--memory" -> {
+                options.setMemoryBudget((long) intOption(args, index) * 1024 * 1024);
+                return index + 1;
+            }
+            case "--stream" -> {
+                options.setStreamingParse(true);
+                return index;
+            }
+            case "--parse-ahead" -> {
+                options.setStreamingParse(true);
+                options.setParseAhead(intOption(args, index));
+                return index + 1;
+            }
+            case "--page-threads" -> {
+                options.setPageThreads(intOption(args, index));
+                return index + 1;
+            }
+            case "--profile" -> {
+                OutputSettings profile = OutputSettings.profile(optionValue(args, index));
+                options.setOutputSettings(profile.withImageDpi(options.getOutputSettings().imageDpi()));
+                return index + 1;
+            }
+            case "--flate-level" -> {
+                int level = intOption(args, index);
+                options.setOutputSettings(options.getOutputSettings().withFlateLevel(level));
+                return index + 1;
+            }
+            case "--object-streams" -> {
+                String size = optionValue(args, index);
+                int objectStreamSize = "off".equalsIgnoreCase(size) ? 0 : parseNumber(args[index], size);
+                options.setOutputSettings(options.getOutputSettings().withObjectStreamSize(objectStreamSize));
+                return index + 1;
+            }
+            case "--prefetch" -> {
+                options.setImagePrefetch(intOption(args, index));
+                return index + 1;
+            }
+            case "--image-dpi" -> {
+                String dpi = optionValue(args, index);
+                int imageDpi = "off".equalsIgnoreCase(dpi) ? 0 : parseNumber(args[index], dpi);
+                options.setOutputSettings(options.getOutputSettings().withImageDpi(imageDpi));
+                return index + 1;
+            }
+            case "--stats" -> {
+                options.setStats(new RenderStats());
+                return index;
+            }
+            default -> {
+                return -1;
+            }
+        }
+    }
+
+    private static void printStats(RenderOptions options) {
+        if (options.getStats() != null) {
+            options.getStats().print(System.err);
+        }
+    }
+
+    private static String optionValue(String[] args, int index) {
+        if (index + 1 >= args.length) {
+            throw new UsageException("Missing value for " + args[index]);
+        }
+        return args[index + 1];
+    }
+
+    private static int intOption(String[] args, int index) {
+        return parseNumber(args[index], optionValue(args, index));
+    }
+
+    private static int parseNumber(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new UsageException("Expected a number for " + option + " but got " + value);
+        }
+    }
+
+    private static final class UsageException extends RuntimeException {
+        private UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
     }
 }
@@ -0,0 +1,64 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+
+public class MeasuredFont {
+    private static final int TABLE_SIZE = 256;
+
+    private final PDFont font;
+    private final float[] advances = new float[TABLE_SIZE];
+
+    public MeasuredFont(PDFont font) throws IOException {
+        this.font = font;
+        for (int code = 0; code < TABLE_SIZE; code++) {
+            try {
+                advances[code] = font.getStringWidth(String.valueOf((char) code));
+            } catch (IllegalArgumentException ex) {
+                // Not encodable in this font; measured through PDFBox so the usual error surfaces.
+                advances[code] = Float.NaN;
+            }
+        }
+    }
+
+    public PDFont getFont() {
+        return font;
+    }
+
+    public float getAdvance(char ch) throws IOException {
+        float advance = ch < TABLE_SIZE ? advances[ch] : Float.NaN;
+        if (Float.isNaN(advance)) {
+            return measureWithFont(String.valueOf(ch));
+        }
+        return advance;
+    }
+
+    public float measure(CharSequence text, int start, int end) throws IOException {
+        float width = 0f;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            float advance = ch < TABLE_SIZE ? advances[ch] : Float.NaN;
+            if (Float.isNaN(advance)) {
+                return measureWithFont(text.subSequence(start, end).toString());
+            }
+            width += advance;
+        }
+        return width;
+    }
+
+    private float measureWithFont(String text) throws IOException {
+        // PDFont caches encodings in plain maps; pages may be laid out on several threads.
+        synchronized (font) {
+            return font.getStringWidth(text);
+        }
+    }
+
+    public float getWidth(CharSequence text, int start, int end, float fontSize) throws IOException {
+        return measure(text, start, end) / 1000f * fontSize;
+    }
+
+    public float getWidth(CharSequence text, float fontSize) throws IOException {
+        return getWidth(text, 0, text.length(), fontSize);
+    }
+}
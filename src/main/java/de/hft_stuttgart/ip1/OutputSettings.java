@@ -0,0 +1,55 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+
+import java.util.zip.Deflater;
+
+public record OutputSettings(int flateLevel, int objectStreamSize, int imageDpi) {
+    public static final OutputSettings DEFAULT =
+            new OutputSettings(Deflater.DEFAULT_COMPRESSION, CompressParameters.DEFAULT_OBJECT_STREAM_SIZE, 0);
+    public static final OutputSettings FASTEST = new OutputSettings(Deflater.BEST_SPEED, 0, 0);
+    public static final OutputSettings SMALLEST = new OutputSettings(Deflater.BEST_COMPRESSION, 1000, 0);
+
+    public OutputSettings {
+        if (flateLevel < Deflater.DEFAULT_COMPRESSION || flateLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Flate level must be between 0 and 9");
+        }
+        if (objectStreamSize < 0) {
+            throw new IllegalArgumentException("Object stream size must not be negative");
+        }
+        if (imageDpi < 0) {
+            throw new IllegalArgumentException("Image DPI must not be negative");
+        }
+    }
+
+    public static OutputSettings profile(String name) {
+        return switch (name.toLowerCase()) {
+            case "default" -> DEFAULT;
+            case "fastest" -> FASTEST;
+            case "smallest" -> SMALLEST;
+            default -> throw new IllegalArgumentException("Unknown output profile: " + name
+                    + " (expected default, fastest or smallest)");
+        };
+    }
+
+    public OutputSettings withFlateLevel(int flateLevel) {
+        return new OutputSettings(flateLevel, objectStreamSize, imageDpi);
+    }
+
+    public OutputSettings withObjectStreamSize(int objectStreamSize) {
+        return new OutputSettings(flateLevel, objectStreamSize, imageDpi);
+    }
+
+    public OutputSettings withImageDpi(int imageDpi) {
+        return new OutputSettings(flateLevel, objectStreamSize, imageDpi);
+    }
+
+    public boolean isDefaultFlateLevel() {
+        return flateLevel == Deflater.DEFAULT_COMPRESSION;
+    }
+
+    public CompressParameters toCompressParameters() {
+        // Without object streams PDFBox also falls back to a classic xref table.
+        return objectStreamSize == 0 ? CompressParameters.NO_COMPRESSION : new CompressParameters(objectStreamSize);
+    }
+}
@@ -1,37 +1,195 @@
 package de.hft_stuttgart.ip1;
 
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 
 import java.awt.*;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 public class PdfContext implements Closeable {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    public record TextState(MeasuredFont font, float fontSize, Color textColor) {
+    }
+
+    public static class MissingParameterException extends IOException {
+        private final String name;
+
+        public MissingParameterException(String name) {
+            super("Missing template parameter: " + name + " (write $${ for a literal ${)");
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
     private final Path baseDir;
     private PDDocument document;
     private PDPage page;
     private PDPageContentStream contentStream;
+    private GraphicsState graphics;
     private Path outputFile;
-    private PDFont font = PDType1Font.HELVETICA;
+    private final RenderStats stats;
+    private final FontRegistry fonts;
+    private final ImageCache images;
+    private MeasuredFont font;
     private float fontSize = 12f;
     private Color textColor = Color.BLACK;
     private TableLayout tableLayout;
+    private long memoryBudget;
+    private Map<String, String> parameters = Map.of();
+    private OutputSettings outputSettings;
+    private final boolean detached;
+    private List<PDPage> detachedPages;
+    private PDDocument scratchDocument;
+    private final List<PDDocument> scratchDocuments = new ArrayList<>();
+    private final PDAppearanceStream form;
+    private final Map<String, PDFormXObject> blocks;
+    private final Set<Path> dependencies;
+    private final boolean confined;
 
     public PdfContext(Path baseDir) {
+        this(baseDir, new RenderOptions());
+    }
+
+    public PdfContext(Path baseDir, RenderOptions options) {
         this.baseDir = baseDir;
+        this.memoryBudget = options.getMemoryBudget();
+        this.stats = options.getStats();
+        this.fonts = new FontRegistry(stats);
+        this.images = new ImageCache(stats);
+        this.outputSettings = options.getOutputSettings();
+        this.detached = false;
+        this.form = null;
+        this.blocks = new HashMap<>();
+        this.dependencies = options.getDependencies();
+        this.confined = options.isConfinedToBaseDir();
+    }
+
+    private PdfContext(PdfContext parent, TextState textState) {
+        this.baseDir = parent.baseDir;
+        this.document = parent.document;
+        this.outputFile = parent.outputFile;
+        this.memoryBudget = parent.memoryBudget;
+        this.parameters = parent.parameters;
+        this.outputSettings = parent.outputSettings;
+        this.stats = parent.stats;
+        this.fonts = parent.fonts;
+        this.images = parent.images;
+        this.font = textState.font();
+        this.fontSize = textState.fontSize();
+        this.textColor = textState.textColor();
+        this.detached = true;
+        this.detachedPages = new ArrayList<>();
+        this.form = null;
+        // Snapshot, because the main thread defines later sections' blocks while this fork renders.
+        this.blocks = new HashMap<>(parent.blocks);
+        this.dependencies = parent.dependencies;
+        this.confined = parent.confined;
+    }
+
+    private PdfContext(PdfContext parent, PDAppearanceStream form) {
+        this.baseDir = parent.baseDir;
+        this.document = parent.document;
+        this.outputFile = parent.outputFile;
+        this.memoryBudget = parent.memoryBudget;
+        this.parameters = parent.parameters;
+        this.outputSettings = parent.outputSettings;
+        this.stats = parent.stats;
+        this.fonts = parent.fonts;
+        this.images = parent.images;
+        this.font = parent.font;
+        this.fontSize = parent.fontSize;
+        this.textColor = parent.textColor;
+        this.detached = false;
+        this.form = form;
+        this.blocks = parent.blocks;
+        this.dependencies = parent.dependencies;
+        this.confined = parent.confined;
+    }
+
+    public PdfContext fork(TextState textState) {
+        ensureDocument();
+        return new PdfContext(this, textState);
+    }
+
+    public PdfContext forBlock(PDAppearanceStream form) {
+        return new PdfContext(this, form);
+    }
+
+    public void putBlock(String name, PDFormXObject block) {
+        blocks.put(name, block);
+    }
+
+    public PDFormXObject getBlock(String name) {
+        return blocks.get(name);
+    }
+
+    public TextState getTextState() {
+        return new TextState(font, fontSize, textColor);
     }
 
     public void setOutputFile(Path outputFile) {
         this.outputFile = outputFile;
-        if (document == null) {
-            document = new PDDocument();
+        ensureDocument();
+    }
+
+    public void setMemoryBudget(long memoryBudget) throws IOException {
+        if (document != null && memoryBudget != this.memoryBudget) {
+            throw new IOException("Memory budget must be set before the document is started");
         }
+        this.memoryBudget = memoryBudget;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setOutputSettings(OutputSettings outputSettings) {
+        if (outputSettings.imageDpi() != this.outputSettings.imageDpi()) {
+            // Pending prefetches were sized for the old DPI and would never be picked up.
+            images.dropPrefetches();
+        }
+        this.outputSettings = outputSettings;
+    }
+
+    public OutputSettings getOutputSettings() {
+        return outputSettings;
     }
 
     public Path getOutputFile() {
@@ -42,36 +200,147 @@ public class PdfContext implements Closeable {
         return document;
     }
 
+    public PDDocument requireDocument() {
+        ensureDocument();
+        return document;
+    }
+
     public PDPage getPage() {
         return page;
     }
 
     public PDPageContentStream getContentStream() throws IOException {
-        ensurePage();
+        return getGraphics().getContentStream();
+    }
+
+    public GraphicsState getGraphics() throws IOException {
         if (contentStream == null) {
-            contentStream = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, true, true);
+            if (form != null) {
+                contentStream = new PDPageContentStream(document, form,
+                        form.getStream().createOutputStream(COSName.FLATE_DECODE));
+            } else {
+                ensurePage();
+                PDDocument target = detached ? scratchDocument : document;
+                // PDFBox only knows the JVM-wide Flate level, so other levels are applied when the stream is closed.
+                boolean compress = outputSettings.isDefaultFlateLevel();
+                contentStream = new PDPageContentStream(target, page, PDPageContentStream.AppendMode.APPEND, compress, true);
+            }
+            graphics = new GraphicsState(contentStream);
         }
-        return contentStream;
+        return graphics;
     }
 
     public void newPage() throws IOException {
+        completeTable();
+        startPage();
+    }
+
+    public void startPage() throws IOException {
+        if (form != null) {
+            throw new IOException("A block cannot start a new page");
+        }
         closeContentStream();
+        if (detached) {
+            page = new PDPage(PDRectangle.A4);
+            detachedPages.add(page);
+            return;
+        }
         ensureDocument();
         page = new PDPage(PDRectangle.A4);
         document.addPage(page);
+    }
+
+    public PDDocument createScratchDocument() {
+        // Forked contexts run on worker threads and must not create streams in the shared document,
+        // so each worker thread writes page content through a scratch document of its own.
+        PDDocument scratch = memoryBudget > 0
+                ? new PDDocument(MemoryUsageSetting.setupMixed(memoryBudget).streamCache)
+                : new PDDocument();
+        synchronized (scratchDocuments) {
+            scratchDocuments.add(scratch);
+        }
+        return scratch;
+    }
+
+    public void setScratchDocument(PDDocument scratchDocument) {
+        this.scratchDocument = scratchDocument;
+    }
+
+    public List<PDPage> finishDetached() throws IOException {
+        completeTable();
+        closeContentStream();
+        page = null;
+        return detachedPages;
+    }
+
+    public void addRenderedPage(PDPage renderedPage) throws IOException {
+        closeContentStream();
+        ensureDocument();
+        document.addPage(renderedPage);
+        page = renderedPage;
         tableLayout = null;
     }
 
-    public void setFont(PDFont font, float size, Color color) {
+    public void registerSubsetFonts() throws IOException {
+        if (document == null) {
+            return;
+        }
+        // Forked contexts draw through scratch documents, so save() does not know which fonts to subset.
+        // Setting them on a throwaway stream of this document queues them, and save() subsets each once.
+        PDAppearanceStream registry = new PDAppearanceStream(new COSStream());
+        registry.setResources(new PDResources());
+        try (PDPageContentStream stream = new PDPageContentStream(document, registry, OutputStream.nullOutputStream())) {
+            for (MeasuredFont measured : fonts.getFonts()) {
+                if (measured.getFont().willBeSubset()) {
+                    stream.setFont(measured.getFont(), 1f);
+                }
+            }
+        }
+    }
+
+    public FontRegistry getFonts() {
+        return fonts;
+    }
+
+    public ImageCache getImages() {
+        return images;
+    }
+
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    public MeasuredFont resolveFont(String name, String style) throws IOException {
+        if (FontFileCache.isFontFile(name)) {
+            if (!"regular".equals(style)) {
+                // A font file holds one face; bold or italic variants live in files of their own.
+                throw new IOException("Font files do not take a style, use the " + style + " font file instead: " + name);
+            }
+            ensureDocument();
+            Path path = resolvePath(name);
+            addDependency(path);
+            return fonts.resolveFile(document, path);
+        }
+        return fonts.resolve(name, style);
+    }
+
+    public void setFont(MeasuredFont font, float size, Color color) {
         this.font = font;
         this.fontSize = size;
         this.textColor = color;
     }
 
-    public PDFont getFont() {
+    public MeasuredFont getMeasuredFont() throws IOException {
+        if (font == null) {
+            font = fonts.resolve("Helvetica", "regular");
+        }
         return font;
     }
 
+    public PDFont getFont() throws IOException {
+        return getMeasuredFont().getFont();
+    }
+
     public float getFontSize() {
         return fontSize;
     }
@@ -80,8 +349,43 @@ public class PdfContext implements Closeable {
         return textColor;
     }
 
-    public Path resolvePath(String path) {
-        return baseDir.resolve(path).normalize();
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public String getParameter(String name) throws IOException {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new MissingParameterException(name);
+        }
+        return value;
+    }
+
+    public Path resolvePath(String path) throws IOException {
+        Path resolved = baseDir.resolve(path).normalize();
+        if (confined && !isInsideBaseDir(resolved)) {
+            throw new IOException("Path is outside the base directory: " + path);
+        }
+        return resolved;
+    }
+
+    private boolean isInsideBaseDir(Path resolved) throws IOException {
+        Path base = baseDir.toAbsolutePath().normalize();
+        if (!resolved.toAbsolutePath().startsWith(base)) {
+            return false;
+        }
+        // A symbolic link inside the base directory may still point elsewhere.
+        return !Files.exists(resolved) || resolved.toRealPath().startsWith(base.toRealPath());
+    }
+
+    public void addDependency(Path path) {
+        if (dependencies != null) {
+            dependencies.add(path);
+        }
     }
 
     public void setTableLayout(TableLayout tableLayout) {
@@ -92,7 +396,19 @@ public class PdfContext implements Closeable {
         return tableLayout;
     }
 
+    public void completeTable() throws IOException {
+        // Rows nobody printed into still need their grid on the remaining pages.
+        if (tableLayout != null) {
+            TableLayout layout = tableLayout;
+            tableLayout = null;
+            TableRenderer.completeTable(this, layout);
+        }
+    }
+
     public PDRectangle getPageBox() {
+        if (form != null) {
+            return form.getBBox();
+        }
         ensurePage();
         return page.getMediaBox();
     }
@@ -102,26 +418,55 @@ public class PdfContext implements Closeable {
     }
 
     public Path finish() throws IOException {
+        completeTable();
         closeContentStream();
         if (outputFile == null) {
             throw new IOException("No output file configured");
         }
         if (document != null) {
-            document.save(outputFile.toFile());
+            try (PhaseTimer ignored = PhaseTimer.start("save", stats)) {
+                recompressStreams();
+                document.save(outputFile.toFile(), outputSettings.toCompressParameters());
+            }
+            if (stats != null) {
+                stats.recordDocument(Files.size(outputFile));
+            }
         }
         return outputFile;
     }
 
+    public void finish(OutputStream outputStream) throws IOException {
+        ensurePage();
+        completeTable();
+        closeContentStream();
+        // PDFBox writes many small chunks and only buffers when saving to a file itself.
+        BufferedOutputStream buffered = new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+        CountingOutputStream counter = new CountingOutputStream(buffered);
+        try (PhaseTimer ignored = PhaseTimer.start("save", stats)) {
+            recompressStreams();
+            document.save(counter, outputSettings.toCompressParameters());
+            buffered.flush();
+        }
+        if (stats != null) {
+            stats.recordDocument(counter.getCount());
+        }
+    }
+
     private void ensureDocument() {
         if (document == null) {
-            document = new PDDocument();
+            if (memoryBudget > 0) {
+                // Streams beyond the budget (page content, images) spill to a scratch file.
+                document = new PDDocument(MemoryUsageSetting.setupMixed(memoryBudget).streamCache);
+            } else {
+                document = new PDDocument();
+            }
         }
     }
 
     private void ensurePage() {
         if (page == null) {
             try {
-                newPage();
+                startPage();
             } catch (IOException ex) {
                 throw new IllegalStateException("Unable to create a new PDF page", ex);
             }
@@ -132,14 +477,89 @@ public class PdfContext implements Closeable {
         if (contentStream != null) {
             contentStream.close();
             contentStream = null;
+            graphics = null;
+            if (form == null && !outputSettings.isDefaultFlateLevel()) {
+                deflateContents(page, outputSettings.flateLevel());
+            }
+        }
+    }
+
+    private static void deflateContents(PDPage page, int level) throws IOException {
+        Iterator<PDStream> streams = page.getContentStreams();
+        while (streams.hasNext()) {
+            COSStream stream = streams.next().getCOSObject();
+            if (stream.containsKey(COSName.FILTER)) {
+                continue;
+            }
+            byte[] content;
+            try (InputStream in = stream.createRawInputStream()) {
+                content = in.readAllBytes();
+            }
+            writeDeflated(stream, content, level);
+            stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        }
+    }
+
+    private void recompressStreams() throws IOException {
+        if (outputSettings.isDefaultFlateLevel()) {
+            return;
+        }
+        // PDFBox deflates images and forms with its process-wide level, so they are re-encoded here.
+        // Page contents were already deflated at this level when their page was closed.
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PDPage documentPage : document.getPages()) {
+            Iterator<PDStream> streams = documentPage.getContentStreams();
+            while (streams.hasNext()) {
+                visited.add(streams.next().getCOSObject());
+            }
+        }
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(document.getDocument().getTrailer());
+        while (!pending.isEmpty()) {
+            COSBase object = pending.pop();
+            if (object instanceof COSObject reference) {
+                object = reference.getObject();
+            }
+            if (object == null || !visited.add(object)) {
+                continue;
+            }
+            if (object instanceof COSDictionary dictionary) {
+                dictionary.getValues().forEach(pending::push);
+                if (dictionary instanceof COSStream stream
+                        && COSName.FLATE_DECODE.equals(stream.getDictionaryObject(COSName.FILTER))) {
+                    reencode(stream, outputSettings.flateLevel());
+                }
+            } else if (object instanceof COSArray array) {
+                array.forEach(pending::push);
+            }
+        }
+    }
+
+    private static void reencode(COSStream stream, int level) throws IOException {
+        byte[] content;
+        try (InputStream in = new InflaterInputStream(stream.createRawInputStream())) {
+            content = in.readAllBytes();
+        }
+        writeDeflated(stream, content, level);
+    }
+
+    private static void writeDeflated(COSStream stream, byte[] content, int level) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try (OutputStream out = new DeflaterOutputStream(stream.createRawOutputStream(), deflater)) {
+            out.write(content);
+        } finally {
+            deflater.end();
         }
     }
 
     @Override
     public void close() throws IOException {
         closeContentStream();
-        if (document != null) {
+        if (document != null && !detached && form == null) {
             document.close();
         }
+        for (PDDocument scratch : scratchDocuments) {
+            scratch.close();
+        }
     }
 }
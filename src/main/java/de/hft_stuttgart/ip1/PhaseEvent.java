@@ -0,0 +1,16 @@
+package de.hft_stuttgart.ip1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.hft_stuttgart.ip1.Phase")
+@Label("Render Phase")
+@Description("Parsing, font resolution, image decoding, text layout or saving")
+@Category("PDF Script")
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,49 @@
+package de.hft_stuttgart.ip1;
+
+import jdk.jfr.EventType;
+
+public final class PhaseTimer implements AutoCloseable {
+    private static final EventType EVENT_TYPE = EventType.getEventType(PhaseEvent.class);
+    // Handed out when neither --stats nor a JFR recording would see the phase, so hot paths allocate nothing.
+    private static final PhaseTimer DISABLED = new PhaseTimer();
+
+    private final String phase;
+    private final RenderStats stats;
+    private final PhaseEvent event;
+    private final long start;
+
+    private PhaseTimer() {
+        this.phase = null;
+        this.stats = null;
+        this.event = null;
+        this.start = 0;
+    }
+
+    private PhaseTimer(String phase, RenderStats stats) {
+        this.phase = phase;
+        this.stats = stats;
+        this.event = new PhaseEvent();
+        event.phase = phase;
+        event.begin();
+        this.start = System.nanoTime();
+    }
+
+    public static PhaseTimer start(String phase, RenderStats stats) {
+        if (stats == null && !EVENT_TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        return new PhaseTimer(phase, stats);
+    }
+
+    @Override
+    public void close() {
+        if (event == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        event.commit();
+        if (stats != null) {
+            stats.recordPhase(phase, elapsed);
+        }
+    }
+}
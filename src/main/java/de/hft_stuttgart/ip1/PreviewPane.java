@@ -0,0 +1,163 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+public class PreviewPane extends JPanel {
+    private static final int DELAY_MILLIS = 600;
+    private static final float PREVIEW_DPI = 50f;
+    private static final long CACHE_BYTES = Long.getLong("pdfscript.previewCacheBytes", 192L * 1024 * 1024);
+
+    private final Supplier<String> script;
+    private final Supplier<Path> baseDir;
+    private final JPanel pages = new JPanel();
+    private final JLabel status = new JLabel(" ");
+    private final Timer debounce;
+    private final RasterCache pageImages = new RasterCache(CACHE_BYTES);
+    private SwingWorker<List<BufferedImage>, Void> worker;
+
+    public PreviewPane(Supplier<String> script, Supplier<Path> baseDir) {
+        super(new BorderLayout());
+        this.script = script;
+        this.baseDir = baseDir;
+        pages.setLayout(new BoxLayout(pages, BoxLayout.Y_AXIS));
+        JScrollPane scrollPane = new JScrollPane(pages);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(24);
+        add(scrollPane, BorderLayout.CENTER);
+        add(status, BorderLayout.SOUTH);
+        debounce = new Timer(DELAY_MILLIS, e -> refresh());
+        debounce.setRepeats(false);
+    }
+
+    public void scheduleRefresh() {
+        debounce.restart();
+    }
+
+    public void refresh() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        String text = script.get();
+        Path base = baseDir.get();
+        status.setText("Rendering preview...");
+        worker = new SwingWorker<>() {
+            private int rasterized;
+
+            @Override
+            protected List<BufferedImage> doInBackground() throws IOException {
+                ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+                // Compiled directly: every edited variant would otherwise stay in the shared template cache.
+                new ScriptRunner().run(ScriptTemplate.compile(text), base, Map.of(), pdf);
+                List<BufferedImage> images = new ArrayList<>();
+                try (PDDocument document = Loader.loadPDF(pdf.toByteArray())) {
+                    PDFRenderer renderer = new PDFRenderer(document);
+                    for (int i = 0; i < document.getNumberOfPages() && !isCancelled(); i++) {
+                        // Unchanged pages produce the same key and are taken from the cache.
+                        String key = pageKey(document.getPage(i));
+                        BufferedImage image = pageImages.get(key);
+                        if (image == null) {
+                            image = renderer.renderImageWithDPI(i, PREVIEW_DPI);
+                            pageImages.put(key, image);
+                            rasterized++;
+                        }
+                        images.add(image);
+                    }
+                }
+                return images;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    showPages(get());
+                    status.setText(pages.getComponentCount() + " pages, " + rasterized + " re-rendered");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof PdfContext.MissingParameterException missing) {
+                        status.setText("No preview: the script needs a value for ${" + missing.getName()
+                                + "}, which is passed with --param when it runs");
+                    } else {
+                        status.setText("Preview failed: " + ex.getCause().getMessage());
+                    }
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showPages(List<BufferedImage> images) {
+        for (int i = 0; i < images.size(); i++) {
+            if (i < pages.getComponentCount()) {
+                JLabel label = (JLabel) pages.getComponent(i);
+                if (((ImageIcon) label.getIcon()).getImage() != images.get(i)) {
+                    label.setIcon(new ImageIcon(images.get(i)));
+                }
+            } else {
+                JLabel label = new JLabel(new ImageIcon(images.get(i)));
+                label.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+                pages.add(label);
+            }
+        }
+        while (pages.getComponentCount() > images.size()) {
+            pages.remove(pages.getComponentCount() - 1);
+        }
+        pages.revalidate();
+        pages.repaint();
+    }
+
+    private static String pageKey(PDPage page) throws IOException {
+        // Resource names like /F1 are reused, so the fonts and images behind them are part of the key.
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        Iterator<PDStream> streams = page.getContentStreams();
+        while (streams.hasNext()) {
+            try (InputStream in = streams.next().createInputStream()) {
+                in.transferTo(key);
+            }
+        }
+        PDResources resources = page.getResources();
+        if (resources != null) {
+            for (COSName name : resources.getFontNames()) {
+                PDFont font = resources.getFont(name);
+                key.writeBytes((name.getName() + '=' + (font == null ? "" : font.getName()) + '\n')
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            for (COSName name : resources.getXObjectNames()) {
+                key.writeBytes((name.getName() + '=').getBytes(StandardCharsets.UTF_8));
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject != null) {
+                    try (InputStream in = xObject.getCOSObject().createRawInputStream()) {
+                        key.writeBytes(ContentHash.of(in.readAllBytes()).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        key.writeBytes(page.getMediaBox().toString().getBytes(StandardCharsets.UTF_8));
+        return ContentHash.of(key.toByteArray());
+    }
+}
@@ -0,0 +1,6 @@
+package de.hft_stuttgart.ip1;
+
+@FunctionalInterface
+public interface ProgressListener {
+    void progress(int done, int total);
+}
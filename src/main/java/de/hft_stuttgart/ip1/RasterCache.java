@@ -0,0 +1,59 @@
+package de.hft_stuttgart.ip1;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RasterCache {
+    private static final long DEFAULT_BUDGET = 128L * 1024 * 1024;
+    private static final RasterCache SHARED = new RasterCache(Long.getLong("pdfscript.rasterCacheBytes", DEFAULT_BUDGET));
+
+    private final long budget;
+    private final LinkedHashMap<String, BufferedImage> rasters = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public RasterCache(long budget) {
+        this.budget = budget;
+    }
+
+    public static RasterCache shared() {
+        return SHARED;
+    }
+
+    public synchronized BufferedImage get(String contentHash) {
+        return rasters.get(contentHash);
+    }
+
+    public synchronized void put(String contentHash, BufferedImage raster) {
+        long size = sizeOf(raster);
+        if (size > budget) {
+            return;
+        }
+        BufferedImage previous = rasters.put(contentHash, raster);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        usedBytes += size;
+        Iterator<Map.Entry<String, BufferedImage>> eldest = rasters.entrySet().iterator();
+        while (usedBytes > budget && eldest.hasNext()) {
+            Map.Entry<String, BufferedImage> entry = eldest.next();
+            usedBytes -= sizeOf(entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        rasters.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private static long sizeOf(BufferedImage raster) {
+        long bitsPerPixel = raster.getColorModel().getPixelSize();
+        return (long) raster.getWidth() * raster.getHeight() * Math.max(1, bitsPerPixel / 8);
+    }
+}
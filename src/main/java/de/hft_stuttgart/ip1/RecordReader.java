@@ -0,0 +1,23 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+public interface RecordReader extends Closeable {
+    Map<String, String> next() throws IOException;
+
+    static RecordReader open(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return new CsvRecordReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+            return new JsonLinesRecordReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+        throw new IOException("Unsupported data source (expected .csv or .jsonl): " + path);
+    }
+}
@@ -0,0 +1,129 @@
+package de.hft_stuttgart.ip1;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+public class RenderOptions {
+    private long memoryBudget;
+    private boolean streamingParse;
+    private int parseAhead;
+    private RenderStats stats;
+    private int pageThreads;
+    private OutputSettings outputSettings = OutputSettings.DEFAULT;
+    private ProgressListener progressListener;
+    private int imagePrefetch = 16;
+    private Set<Path> dependencies;
+    private boolean confinedToBaseDir;
+
+    public RenderOptions() {
+    }
+
+    public RenderOptions(RenderOptions other) {
+        this.memoryBudget = other.memoryBudget;
+        this.streamingParse = other.streamingParse;
+        this.parseAhead = other.parseAhead;
+        this.stats = other.stats;
+        this.pageThreads = other.pageThreads;
+        this.outputSettings = other.outputSettings;
+        this.progressListener = other.progressListener;
+        this.imagePrefetch = other.imagePrefetch;
+        this.dependencies = other.dependencies;
+        this.confinedToBaseDir = other.confinedToBaseDir;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    public boolean isStreaming() {
+        return memoryBudget > 0;
+    }
+
+    public boolean isStreamingParse() {
+        return streamingParse;
+    }
+
+    public void setStreamingParse(boolean streamingParse) {
+        this.streamingParse = streamingParse;
+    }
+
+    public int getParseAhead() {
+        return parseAhead;
+    }
+
+    public void setParseAhead(int parseAhead) {
+        if (parseAhead < 0) {
+            throw new IllegalArgumentException("Parse-ahead queue size must not be negative");
+        }
+        this.parseAhead = parseAhead;
+    }
+
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    public void setStats(RenderStats stats) {
+        this.stats = stats;
+    }
+
+    public int getPageThreads() {
+        return pageThreads;
+    }
+
+    public void setPageThreads(int pageThreads) {
+        if (pageThreads < 0) {
+            throw new IllegalArgumentException("Page thread count must not be negative");
+        }
+        this.pageThreads = pageThreads;
+    }
+
+    public OutputSettings getOutputSettings() {
+        return outputSettings;
+    }
+
+    public void setOutputSettings(OutputSettings outputSettings) {
+        this.outputSettings = outputSettings;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public int getImagePrefetch() {
+        return imagePrefetch;
+    }
+
+    public void setImagePrefetch(int imagePrefetch) {
+        if (imagePrefetch < 0) {
+            throw new IllegalArgumentException("Image prefetch window must not be negative");
+        }
+        this.imagePrefetch = imagePrefetch;
+    }
+
+    public Set<Path> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(Set<Path> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    public boolean isConfinedToBaseDir() {
+        return confinedToBaseDir;
+    }
+
+    public void setConfinedToBaseDir(boolean confinedToBaseDir) {
+        this.confinedToBaseDir = confinedToBaseDir;
+    }
+}
@@ -0,0 +1,206 @@
+package de.hft_stuttgart.ip1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenderServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path baseDir;
+    private final ScriptRunner runner;
+    private final Semaphore renderPermits;
+    private final int admissionLimit;
+    private final int maxScriptBytes;
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    public RenderServer(
+            InetSocketAddress address,
+            Path baseDir,
+            RenderOptions options,
+            int concurrency,
+            int queueLimit,
+            int maxScriptBytes
+    ) throws IOException {
+        if (concurrency <= 0 || queueLimit < 0) {
+            throw new IllegalArgumentException("Concurrency must be positive and the queue limit must not be negative");
+        }
+        if (maxScriptBytes <= 0) {
+            throw new IllegalArgumentException("Script size limit must be positive");
+        }
+        this.baseDir = baseDir;
+        this.maxScriptBytes = maxScriptBytes;
+        // Request scripts come from the network, so images, fonts and includes must stay below the base directory.
+        RenderOptions serverOptions = new RenderOptions(options);
+        serverOptions.setConfinedToBaseDir(true);
+        this.runner = new ScriptRunner(serverOptions);
+        this.renderPermits = new Semaphore(concurrency, true);
+        this.admissionLimit = concurrency + queueLimit;
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/render", this::handleRender);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handleRender(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Use POST with the script as request body");
+                return;
+            }
+            if (admitted.incrementAndGet() > admissionLimit) {
+                admitted.decrementAndGet();
+                sendText(exchange, 503, "Render queue is full");
+                return;
+            }
+            try {
+                renderPermits.acquire();
+                try {
+                    render(exchange);
+                } finally {
+                    renderPermits.release();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                sendText(exchange, 503, "Server is shutting down");
+            } finally {
+                admitted.decrementAndGet();
+            }
+        }
+    }
+
+    private void render(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream body = exchange.getRequestBody()) {
+            bytes = body.readNBytes(maxScriptBytes + 1);
+        }
+        if (bytes.length > maxScriptBytes) {
+            sendText(exchange, 413, "Script exceeds " + maxScriptBytes + " bytes");
+            return;
+        }
+        String script = new String(bytes, StandardCharsets.UTF_8);
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        PdfResponse response = new PdfResponse(exchange);
+        try {
+            runner.run(script, baseDir, parameters, response);
+            response.close();
+        } catch (IOException | RuntimeException ex) {
+            if (response.isCommitted()) {
+                // Headers are already out; all we can do is cut the response short.
+                throw ex;
+            }
+            // Messages can quote file contents or paths, so they stay in the server log.
+            System.err.println("FAILED " + exchange.getRemoteAddress() + ": " + ex);
+            if (ex instanceof IOException) {
+                sendText(exchange, 400, "Script could not be rendered");
+            } else {
+                sendText(exchange, 500, "Internal error while rendering");
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            // Before Java 21 there are no virtual threads; the admission limit still bounds the thread count.
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static final class PdfResponse extends OutputStream {
+        private final HttpExchange exchange;
+        private OutputStream body;
+
+        private PdfResponse(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        boolean isCommitted() {
+            return body != null;
+        }
+
+        private OutputStream body() throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+                exchange.sendResponseHeaders(200, 0);
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            body().write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            body().write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            body().close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class RenderStats {
+    private static final class Timings {
+        // Log-linear buckets: 16 per power of two, so percentiles are within about 6% and the
+        // memory per command kind stays fixed however many commands a script runs.
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] buckets = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+        private int count;
+        private long total;
+        private long max;
+
+        void add(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets[bucketOf(value)]++;
+            count++;
+            total += value;
+            max = Math.max(max, value);
+        }
+
+        long percentile(double fraction) {
+            long target = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= target) {
+                    return Math.min(upperBound(bucket), max);
+                }
+            }
+            return max;
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift) - 1;
+        }
+    }
+
+    private final Map<String, Timings> commands = new TreeMap<>();
+    private final Map<String, Timings> phases = new TreeMap<>();
+    private long documents;
+    private long bytesWritten;
+
+    public RenderStats() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public synchronized void recordCommand(String kind, long nanos) {
+        commands.computeIfAbsent(kind, key -> new Timings()).add(nanos);
+    }
+
+    public synchronized void recordPhase(String phase, long nanos) {
+        phases.computeIfAbsent(phase, key -> new Timings()).add(nanos);
+    }
+
+    public synchronized void recordDocument(long bytes) {
+        documents++;
+        bytesWritten += bytes;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public static long peakHeapBytes() {
+        // Sum of per-pool peaks; an upper bound since pools rarely peak at the same moment.
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    public synchronized void print(PrintStream out) {
+        out.printf("%-12s %8s %12s %10s%n", "command", "count", "total ms", "p99 ms");
+        for (Map.Entry<String, Timings> entry : commands.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue());
+        }
+        out.printf("%n%-12s %8s %12s %10s%n", "phase", "count", "total ms", "p99 ms");
+        for (Map.Entry<String, Timings> entry : phases.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue());
+        }
+        out.printf("%ndocuments    %d%n", documents);
+        out.printf("bytes written %d (%.1f MB)%n", bytesWritten, bytesWritten / (1024.0 * 1024.0));
+        out.printf("peak heap    %.1f MB%n", peakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    private static void printRow(PrintStream out, String name, Timings timings) {
+        out.printf(
+                "%-12s %8d %12.3f %10.3f%n",
+                name,
+                timings.count,
+                timings.total / 1_000_000.0,
+                timings.percentile(0.99) / 1_000_000.0
+        );
+    }
+}
@@ -1,17 +1,35 @@
 package de.hft_stuttgart.ip1;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
 public class ScriptEditor extends JFrame {
-    private final JTextArea textArea = new JTextArea(30, 120);
+    private final JTextArea textArea = new JTextArea(30, 80);
     private final ScriptSettings settings = new ScriptSettings();
+    private final PreviewPane preview = new PreviewPane(textArea::getText, this::getBaseDir);
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final Action runAction = new AbstractAction("Run") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            runScript();
+        }
+    };
+    private final Action cancelAction = new AbstractAction("Cancel") {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            cancelRun();
+        }
+    };
     private Path currentFile;
+    private SwingWorker<Path, Void> runWorker;
 
     public ScriptEditor() {
         super("PDF Script Editor");
@@ -19,7 +37,24 @@ public class ScriptEditor extends JFrame {
         setLayout(new BorderLayout());
 
         JScrollPane scrollPane = new JScrollPane(textArea);
-        add(scrollPane, BorderLayout.CENTER);
+        preview.setPreferredSize(new Dimension(560, 600));
+        add(new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, scrollPane, preview), BorderLayout.CENTER);
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                preview.scheduleRefresh();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                preview.scheduleRefresh();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                preview.scheduleRefresh();
+            }
+        });
 
         JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
         buttons.add(new JButton(new AbstractAction("Open") {
@@ -34,12 +69,8 @@ public class ScriptEditor extends JFrame {
                 saveScript();
             }
         }));
-        buttons.add(new JButton(new AbstractAction("Run") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                runScript();
-            }
-        }));
+        buttons.add(new JButton(runAction));
+        buttons.add(new JButton(cancelAction));
         buttons.add(new JButton(new AbstractAction("Settings") {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -47,6 +78,9 @@ public class ScriptEditor extends JFrame {
             }
         }));
         add(buttons, BorderLayout.NORTH);
+        cancelAction.setEnabled(false);
+        progressBar.setStringPainted(true);
+        add(progressBar, BorderLayout.SOUTH);
 
         pack();
         setLocationRelativeTo(null);
@@ -82,16 +116,60 @@ public class ScriptEditor extends JFrame {
         }
     }
 
-    private void runScript() {
-        ScriptRunner runner = new ScriptRunner();
-        Path baseDir = Optional.ofNullable(currentFile)
+    private Path getBaseDir() {
+        return Optional.ofNullable(currentFile)
+                .map(Path::toAbsolutePath)
                 .map(Path::getParent)
                 .orElse(Path.of("."));
-        try {
-            Path output = runner.run(textArea.getText(), baseDir);
-            settings.openPdf(output);
-        } catch (IOException ex) {
-            showError("Failed to run script: " + ex.getMessage());
+    }
+
+    private void runScript() {
+        String script = textArea.getText();
+        Path baseDir = getBaseDir();
+        runAction.setEnabled(false);
+        cancelAction.setEnabled(true);
+        progressBar.setValue(0);
+        runWorker = new SwingWorker<>() {
+            @Override
+            protected Path doInBackground() throws IOException {
+                RenderOptions options = new RenderOptions();
+                options.setProgressListener((done, total) -> setProgress(done * 100 / total));
+                return new ScriptRunner(options).run(script, baseDir);
+            }
+
+            @Override
+            protected void done() {
+                runAction.setEnabled(true);
+                cancelAction.setEnabled(false);
+                if (isCancelled()) {
+                    progressBar.setValue(0);
+                    progressBar.setString("Cancelled");
+                    return;
+                }
+                progressBar.setString(null);
+                try {
+                    settings.openPdf(get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    showError("Failed to run script: " + ex.getCause().getMessage());
+                } catch (IOException ex) {
+                    showError("Failed to open PDF: " + ex.getMessage());
+                }
+            }
+        };
+        runWorker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+        progressBar.setString(null);
+        runWorker.execute();
+    }
+
+    private void cancelRun() {
+        if (runWorker != null) {
+            runWorker.cancel(true);
         }
     }
 
@@ -4,64 +4,157 @@ import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ScriptParser {
     private final ScriptTokenizer tokenizer;
+    private final List<TemplateText> outputFiles = new ArrayList<>();
 
-    public ScriptParser(String script) {
+    public ScriptParser(CharSequence script) {
         this.tokenizer = new ScriptTokenizer(script);
     }
 
     public List<ScriptCommand> parse() throws IOException {
         List<ScriptCommand> commands = new ArrayList<>();
+        ScriptCommand command;
+        while ((command = nextCommand()) != null) {
+            commands.add(command);
+        }
+        return commands;
+    }
+
+    public List<TemplateText> getOutputFiles() {
+        return outputFiles;
+    }
+
+    public ScriptCommand nextCommand() throws IOException {
+        while (tokenizer.peek().isSymbol('.')) {
+            tokenizer.next();
+        }
+        if (tokenizer.peek().type() == TokenType.EOF) {
+            return null;
+        }
+        Token token = tokenizer.next();
+        if (token.type() != TokenType.WORD) {
+            throw new IOException("Expected command but found: " + token.text());
+        }
+        int line = tokenizer.lineOf(token);
+        String name = token.text().toLowerCase();
+        ScriptCommand command = switch (name) {
+            case "output" -> parseOutput();
+            case "font" -> parseFont();
+            case "print" -> parsePrint();
+            case "nextpage" -> parseNextPage();
+            case "image" -> parseImage();
+            case "table" -> parseTable();
+            case "control" -> parseControl();
+            case "include" -> parseInclude();
+            case "block" -> parseBlock();
+            case "stamp" -> parseStamp();
+            default -> throw new IOException("Unknown command: " + name);
+        };
+        consumeCommandEnd();
+        return new TracedCommand(name, line, command);
+    }
+
+    private ScriptCommand parseOutput() throws IOException {
+        Float memory = null;
+        OutputSettings profile = null;
+        Integer level = null;
+        Integer objectStreamSize = null;
+        Integer imageDpi = null;
+
         while (tokenizer.peek().type() != TokenType.EOF) {
-            Token token = tokenizer.next();
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
-                continue;
+            Token token = tokenizer.peek();
+            if (token.type() == TokenType.STRING) {
+                break;
             }
-            if (token.type() != TokenType.WORD) {
-                throw new IOException("Expected command but found: " + token.text());
+            if (token.isSymbol('.')) {
+                break;
             }
-            String command = token.text().toLowerCase();
-            switch (command) {
-                case "output" -> commands.add(parseOutput());
-                case "font" -> commands.add(parseFont());
-                case "print" -> commands.add(parsePrint());
-                case "nextpage" -> commands.add(parseNextPage());
-                case "image" -> commands.add(parseImage());
-                case "table" -> commands.add(parseTable());
-                case "control" -> commands.add(parseControl());
-                default -> throw new IOException("Unknown command: " + command);
+            String keyword = expectWord("output option");
+            switch (keyword) {
+                case "memory" -> memory = expectNumber("memory budget in MB");
+                case "profile" -> profile = parseProfile(expectWord("output profile"));
+                case "level" -> level = expectInt("flate level");
+                case "objects" -> {
+                    String size = expectWordOrNumber("object stream size");
+                    objectStreamSize = "off".equalsIgnoreCase(size) ? 0 : Math.round(parseFloat(size));
+                }
+                case "dpi" -> {
+                    String dpi = expectWordOrNumber("image DPI");
+                    imageDpi = "off".equalsIgnoreCase(dpi) ? 0 : Math.round(parseFloat(dpi));
+                }
+                default -> throw new IOException("Unknown output option: " + keyword);
             }
-            consumeCommandEnd();
         }
-        return commands;
+
+        TemplateText fileName = expectText("output file");
+        outputFiles.add(fileName);
+        Long memoryBudget = memory == null ? null : (long) (memory * 1024 * 1024);
+        OutputSettings resolvedProfile = profile;
+        Integer resolvedLevel = level;
+        Integer resolvedObjectStreamSize = objectStreamSize;
+        Integer resolvedImageDpi = imageDpi;
+        if (level != null && (level < 0 || level > 9)) {
+            throw new IOException("Flate level must be between 0 and 9");
+        }
+        if (objectStreamSize != null && objectStreamSize < 0) {
+            throw new IOException("Object stream size must not be negative");
+        }
+        if (imageDpi != null && imageDpi < 0) {
+            throw new IOException("Image DPI must not be negative");
+        }
+        return context -> {
+            if (memoryBudget != null) {
+                context.setMemoryBudget(memoryBudget);
+            }
+            OutputSettings settings = context.getOutputSettings();
+            if (resolvedProfile != null) {
+                // Profiles only cover compression; downsampling stays whatever was chosen explicitly.
+                settings = resolvedProfile.withImageDpi(settings.imageDpi());
+            }
+            if (resolvedLevel != null) {
+                settings = settings.withFlateLevel(resolvedLevel);
+            }
+            if (resolvedObjectStreamSize != null) {
+                settings = settings.withObjectStreamSize(resolvedObjectStreamSize);
+            }
+            if (resolvedImageDpi != null) {
+                settings = settings.withImageDpi(resolvedImageDpi);
+            }
+            context.setOutputSettings(settings);
+            context.setOutputFile(context.resolvePath(fileName.resolve(context)));
+        };
     }
 
-    private ScriptCommand parseOutput() throws IOException {
-        String fileName = expectString("output file");
-        return context -> context.setOutputFile(context.resolvePath(fileName));
+    private static OutputSettings parseProfile(String name) throws IOException {
+        try {
+            return OutputSettings.profile(name);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage());
+        }
     }
 
     private ScriptCommand parseFont() throws IOException {
-        Float size = null;
+        TemplateNumber size = null;
         String style = "regular";
         Color color = Color.BLACK;
-        String fontName = null;
+        TemplateText fontName = null;
 
         while (tokenizer.peek().type() != TokenType.EOF) {
             Token token = tokenizer.peek();
             if (token.type() == TokenType.STRING) {
-                fontName = tokenizer.next().text();
+                fontName = expectText("font name");
                 break;
             }
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             String keyword = expectWord("font option");
             switch (keyword) {
-                case "size" -> size = expectNumber("font size");
+                case "size" -> size = expectNumberValue("font size");
                 case "style" -> style = expectWord("font style");
                 case "colour", "color" -> color = ColorParser.parseColor(expectWordOrNumber("font colour"));
                 default -> throw new IOException("Unknown font option: " + keyword);
@@ -71,21 +164,22 @@ public class ScriptParser {
         if (size == null) {
             throw new IOException("Font size is required");
         }
-        String resolvedFontName = fontName == null ? "Helvetica" : fontName;
+        TemplateNumber resolvedSize = size;
+        TemplateText resolvedFontName = fontName == null ? TemplateText.compile("Helvetica") : fontName;
         String resolvedStyle = style.toLowerCase();
         Color resolvedColor = color;
         return context -> {
-            PdfFonts.FontSelection selection = PdfFonts.resolve(resolvedFontName, resolvedStyle);
-            context.setFont(selection.font(), size, resolvedColor);
+            MeasuredFont font = context.resolveFont(resolvedFontName.resolve(context), resolvedStyle);
+            context.setFont(font, resolvedSize.resolve(context), resolvedColor);
         };
     }
 
     private ScriptCommand parsePrint() throws IOException {
-        Float x = null;
-        Float y = null;
-        Integer cellX = null;
-        Integer cellY = null;
-        Float width = null;
+        TemplateNumber x = null;
+        TemplateNumber y = null;
+        TemplateNumber cellX = null;
+        TemplateNumber cellY = null;
+        TemplateNumber width = null;
         TextAlignment alignment = TextAlignment.LEFT;
 
         while (tokenizer.peek().type() != TokenType.EOF) {
@@ -93,98 +187,199 @@ public class ScriptParser {
             if (token.type() == TokenType.STRING) {
                 break;
             }
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             String keyword = expectWord("print option");
             switch (keyword) {
                 case "@" -> {
-                    x = expectNumber("x");
-                    expectSymbol(",");
-                    y = expectNumber("y");
+                    x = expectNumberValue("x");
+                    expectSymbol(',');
+                    y = expectNumberValue("y");
                 }
                 case "cell" -> {
-                    cellX = expectInt("cell column");
-                    expectSymbol(",");
-                    cellY = expectInt("cell row");
+                    cellX = expectIntValue("cell column");
+                    expectSymbol(',');
+                    cellY = expectIntValue("cell row");
                 }
-                case "width" -> width = expectNumber("width");
+                case "width" -> width = expectNumberValue("width");
                 case "alignment", "aligmnent" -> alignment = TextAlignment.from(expectWord("alignment"));
                 default -> throw new IOException("Unknown print option: " + keyword);
             }
         }
 
-        String text = expectString("print text");
-        Float resolvedX = x;
-        Float resolvedY = y;
-        Float resolvedWidth = width;
-        Integer resolvedCellX = cellX;
-        Integer resolvedCellY = cellY;
+        TemplateText text = expectText("print text");
+        TemplateNumber resolvedX = x;
+        TemplateNumber resolvedY = y;
+        TemplateNumber resolvedWidth = width;
+        TemplateNumber resolvedCellX = cellX;
+        TemplateNumber resolvedCellY = cellY;
         TextAlignment resolvedAlignment = alignment;
 
         return context -> {
-            Position position = resolvePosition(context, resolvedX, resolvedY, resolvedCellX, resolvedCellY);
-            TextRenderer.renderText(context, position.x(), position.y(), resolvedWidth, resolvedAlignment, text);
+            if (resolvedCellX != null && resolvedCellY != null) {
+                TableRenderer.printCell(
+                        context,
+                        resolvedCellX.resolveInt(context),
+                        resolvedCellY.resolveInt(context),
+                        resolve(context, resolvedWidth),
+                        resolvedAlignment,
+                        text.resolve(context)
+                );
+                return;
+            }
+            Position position = resolvePosition(context, resolve(context, resolvedX), resolve(context, resolvedY));
+            TextRenderer.renderText(
+                    context,
+                    position.x(),
+                    position.y(),
+                    resolve(context, resolvedWidth),
+                    resolvedAlignment,
+                    text.resolve(context)
+            );
         };
     }
 
+    private ScriptCommand parseBlock() throws IOException {
+        TemplateNumber width = null;
+        TemplateNumber height = null;
+
+        while (tokenizer.peek().type() != TokenType.EOF) {
+            Token token = tokenizer.peek();
+            if (token.type() == TokenType.STRING) {
+                break;
+            }
+            if (token.isSymbol('.')) {
+                break;
+            }
+            String keyword = expectWord("block option");
+            switch (keyword) {
+                case "size" -> {
+                    width = expectNumberValue("width");
+                    expectSymbol(',');
+                    height = expectNumberValue("height");
+                }
+                default -> throw new IOException("Unknown block option: " + keyword);
+            }
+        }
+
+        TemplateText name = expectText("block name");
+        if (width == null) {
+            throw new IOException("Block size is required");
+        }
+        consumeCommandEnd();
+        List<ScriptCommand> commands = new ArrayList<>();
+        while (!atBlockEnd()) {
+            ScriptCommand command = nextCommand();
+            if (command == null) {
+                throw new IOException("Block " + name + " is missing its end");
+            }
+            commands.add(command);
+        }
+        tokenizer.next();
+        return new BlockCommand(name, width, height, List.copyOf(commands));
+    }
+
+    private boolean atBlockEnd() throws IOException {
+        while (tokenizer.peek().isSymbol('.')) {
+            tokenizer.next();
+        }
+        Token token = tokenizer.peek();
+        return token.type() == TokenType.WORD && "end".equalsIgnoreCase(token.text());
+    }
+
+    private ScriptCommand parseStamp() throws IOException {
+        TemplateNumber x = null;
+        TemplateNumber y = null;
+
+        while (tokenizer.peek().type() != TokenType.EOF) {
+            Token token = tokenizer.peek();
+            if (token.type() == TokenType.STRING) {
+                break;
+            }
+            if (token.isSymbol('.')) {
+                break;
+            }
+            String keyword = expectWord("stamp option");
+            switch (keyword) {
+                case "@" -> {
+                    x = expectNumberValue("x");
+                    expectSymbol(',');
+                    y = expectNumberValue("y");
+                }
+                default -> throw new IOException("Unknown stamp option: " + keyword);
+            }
+        }
+
+        TemplateText name = expectText("block name");
+        TemplateNumber resolvedX = x;
+        TemplateNumber resolvedY = y;
+        return context -> BlockRenderer.stampBlock(
+                context,
+                resolve(context, resolvedX),
+                resolve(context, resolvedY),
+                name.resolve(context)
+        );
+    }
+
+    private ScriptCommand parseInclude() throws IOException {
+        return new IncludeCommand(expectText("include path"));
+    }
+
     private ScriptCommand parseNextPage() {
         return PdfContext::newPage;
     }
 
     private ScriptCommand parseImage() throws IOException {
-        Float x = null;
-        Float y = null;
-        Float width = null;
-        Float height = null;
+        TemplateNumber x = null;
+        TemplateNumber y = null;
+        TemplateNumber width = null;
+        TemplateNumber height = null;
 
         while (tokenizer.peek().type() != TokenType.EOF) {
             Token token = tokenizer.peek();
             if (token.type() == TokenType.STRING) {
                 break;
             }
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             String keyword = expectWord("image option");
             switch (keyword) {
                 case "@" -> {
-                    x = expectNumber("x");
-                    expectSymbol(",");
-                    y = expectNumber("y");
+                    x = expectNumberValue("x");
+                    expectSymbol(',');
+                    y = expectNumberValue("y");
                 }
                 case "size" -> {
-                    width = expectNumber("width");
-                    expectSymbol(",");
-                    height = expectNumber("height");
+                    width = expectNumberValue("width");
+                    expectSymbol(',');
+                    height = expectNumberValue("height");
                 }
                 default -> throw new IOException("Unknown image option: " + keyword);
             }
         }
 
-        String path = expectString("image path");
-        Float resolvedX = x;
-        Float resolvedY = y;
-        Float resolvedWidth = width;
-        Float resolvedHeight = height;
-
-        return context -> ImageRenderer.renderImage(context, resolvedX, resolvedY, resolvedWidth, resolvedHeight, path);
+        TemplateText path = expectText("image path");
+        return new ImageCommand(x, y, width, height, path);
     }
 
     private ScriptCommand parseTable() throws IOException {
-        int columns = 0;
-        int rows = 0;
-        List<Float> widths = new ArrayList<>();
-        List<Float> heights = new ArrayList<>();
+        TemplateNumber columns = TemplateNumber.constant(0f);
+        TemplateNumber rows = TemplateNumber.constant(0f);
+        TemplateNumber headerRows = TemplateNumber.constant(0f);
+        float[] widths = new float[0];
+        float[] heights = new float[0];
         Color lineColor = Color.BLACK;
         Color background = Color.WHITE;
-        float thickness = 2f;
-        float originX = 0f;
-        float originY = 0f;
+        TemplateNumber thickness = TemplateNumber.constant(2f);
+        TemplateNumber originX = TemplateNumber.constant(0f);
+        TemplateNumber originY = TemplateNumber.constant(0f);
+        TemplateNumber margin = TemplateNumber.constant(TableRenderer.DEFAULT_MARGIN);
 
         while (tokenizer.peek().type() != TokenType.EOF) {
             Token token = tokenizer.peek();
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             if (token.type() == TokenType.STRING) {
@@ -192,53 +387,56 @@ public class ScriptParser {
             }
             String keyword = expectWord("table option");
             switch (keyword) {
-                case "columns" -> columns = expectInt("columns");
-                case "rows" -> rows = expectInt("rows");
+                case "columns" -> columns = expectIntValue("columns");
+                case "rows" -> rows = expectIntValue("rows");
+                case "header" -> headerRows = expectIntValue("header rows");
+                case "margin" -> margin = expectNumberValue("page margin");
                 case "width" -> widths = parseNumberList();
                 case "height" -> heights = parseNumberList();
                 case "lines" -> lineColor = ColorParser.parseColor(expectWordOrNumber("line color"));
                 case "background" -> background = ColorParser.parseColor(expectWordOrNumber("background color"));
-                case "thickness" -> thickness = expectNumber("thickness");
+                case "thickness" -> thickness = expectNumberValue("thickness");
                 case "@" -> {
-                    originX = expectNumber("origin x");
-                    expectSymbol(",");
-                    originY = expectNumber("origin y");
+                    originX = expectNumberValue("origin x");
+                    expectSymbol(',');
+                    originY = expectNumberValue("origin y");
                 }
                 default -> throw new IOException("Unknown table option: " + keyword);
             }
         }
 
-        int resolvedColumns = columns;
-        int resolvedRows = rows;
-        List<Float> resolvedWidths = widths;
-        List<Float> resolvedHeights = heights;
+        TemplateNumber resolvedColumns = columns;
+        TemplateNumber resolvedRows = rows;
+        TemplateNumber resolvedHeaderRows = headerRows;
+        float[] resolvedWidths = widths;
+        float[] resolvedHeights = heights;
         Color resolvedLines = lineColor;
         Color resolvedBackground = background;
-        float resolvedThickness = thickness;
-        float resolvedX = originX;
-        float resolvedY = originY;
-
-        return context -> {
-            TableLayout layout = TableRenderer.renderTable(
-                    context,
-                    resolvedX,
-                    resolvedY,
-                    resolvedColumns,
-                    resolvedRows,
-                    resolvedWidths,
-                    resolvedHeights,
-                    resolvedLines,
-                    resolvedBackground,
-                    resolvedThickness
-            );
-            context.setTableLayout(layout);
-        };
+        TemplateNumber resolvedThickness = thickness;
+        TemplateNumber resolvedX = originX;
+        TemplateNumber resolvedY = originY;
+        TemplateNumber resolvedMargin = margin;
+
+        return context -> TableRenderer.renderTable(
+                context,
+                resolvedX.resolve(context),
+                resolvedY.resolve(context),
+                resolvedColumns.resolveInt(context),
+                resolvedRows.resolveInt(context),
+                resolvedHeaderRows.resolveInt(context),
+                resolvedWidths,
+                resolvedHeights,
+                resolvedLines,
+                resolvedBackground,
+                resolvedThickness.resolve(context),
+                resolvedMargin.resolve(context)
+        );
     }
 
     private ScriptCommand parseControl() throws IOException {
         while (tokenizer.peek().type() != TokenType.EOF) {
             Token token = tokenizer.peek();
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             tokenizer.next();
@@ -248,22 +446,26 @@ public class ScriptParser {
         };
     }
 
-    private List<Float> parseNumberList() throws IOException {
-        List<Float> values = new ArrayList<>();
+    private float[] parseNumberList() throws IOException {
+        float[] values = new float[8];
+        int count = 0;
         boolean repeat = false;
         while (tokenizer.peek().type() != TokenType.EOF) {
             Token token = tokenizer.peek();
-            if (token.type() == TokenType.SYMBOL && ".".equals(token.text())) {
+            if (token.isSymbol('.')) {
                 break;
             }
             if (token.type() == TokenType.NUMBER) {
-                values.add(expectNumber("number"));
-                if (tokenizer.peek().type() == TokenType.SYMBOL && "*".equals(tokenizer.peek().text())) {
+                if (count + 1 >= values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                values[count++] = expectNumber("number");
+                if (tokenizer.peek().isSymbol('*')) {
                     tokenizer.next();
                     repeat = true;
                     break;
                 }
-                if (tokenizer.peek().type() == TokenType.SYMBOL && ",".equals(tokenizer.peek().text())) {
+                if (tokenizer.peek().isSymbol(',')) {
                     tokenizer.next();
                     continue;
                 }
@@ -272,14 +474,15 @@ public class ScriptParser {
                 break;
             }
         }
-        if (repeat && !values.isEmpty()) {
-            values.add(values.get(values.size() - 1));
+        if (repeat && count > 0) {
+            values[count] = values[count - 1];
+            count++;
         }
-        return values;
+        return Arrays.copyOf(values, count);
     }
 
     private void consumeCommandEnd() throws IOException {
-        if (tokenizer.peek().type() == TokenType.SYMBOL && ".".equals(tokenizer.peek().text())) {
+        if (tokenizer.peek().isSymbol('.')) {
             tokenizer.next();
         }
     }
@@ -292,6 +495,10 @@ public class ScriptParser {
         return token.text();
     }
 
+    private TemplateText expectText(String label) throws IOException {
+        return TemplateText.compile(expectString(label));
+    }
+
     private String expectWord(String label) throws IOException {
         Token token = tokenizer.next();
         if (token.type() != TokenType.WORD && token.type() != TokenType.SYMBOL) {
@@ -316,13 +523,33 @@ public class ScriptParser {
         return parseFloat(token.text());
     }
 
+    private TemplateNumber expectNumberValue(String label) throws IOException {
+        Token token = tokenizer.next();
+        if (token.type() == TokenType.PLACEHOLDER) {
+            return TemplateNumber.parameter(token.text());
+        }
+        if (token.type() != TokenType.NUMBER) {
+            throw new IOException("Expected number for " + label + " but got " + token.text());
+        }
+        return TemplateNumber.constant(parseFloat(token.text()));
+    }
+
+    private static Float resolve(PdfContext context, TemplateNumber value) throws IOException {
+        return value == null ? null : value.resolve(context);
+    }
+
     private int expectInt(String label) throws IOException {
         return Math.round(expectNumber(label));
     }
 
-    private void expectSymbol(String symbol) throws IOException {
+    private TemplateNumber expectIntValue(String label) throws IOException {
+        TemplateNumber value = expectNumberValue(label);
+        return value.parameter() == null ? TemplateNumber.constant(Math.round(value.value())) : value;
+    }
+
+    private void expectSymbol(char symbol) throws IOException {
         Token token = tokenizer.next();
-        if (token.type() != TokenType.SYMBOL || !symbol.equals(token.text())) {
+        if (!token.isSymbol(symbol)) {
             throw new IOException("Expected symbol '" + symbol + "' but got " + token.text());
         }
     }
@@ -335,22 +562,7 @@ public class ScriptParser {
         }
     }
 
-    private Position resolvePosition(
-            PdfContext context,
-            Float x,
-            Float y,
-            Integer cellX,
-            Integer cellY
-    ) throws IOException {
-        if (cellX != null && cellY != null) {
-            TableLayout layout = context.getTableLayout();
-            if (layout == null) {
-                throw new IOException("No table defined for cell positioning");
-            }
-            float cellOriginX = layout.getCellX(cellX);
-            float cellOriginY = layout.getCellY(cellY);
-            return new Position(cellOriginX, cellOriginY);
-        }
+    private static Position resolvePosition(PdfContext context, Float x, Float y) throws IOException {
         if (x == null || y == null) {
             throw new IOException("Print requires position");
         }
@@ -1,18 +1,288 @@
 package de.hft_stuttgart.ip1;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ScriptRunner {
-    public Path run(String script, Path baseDir) throws IOException {
+    private static final ScriptCommand END_OF_SCRIPT = context -> {
+    };
+
+    private final RenderOptions options;
+
+    public ScriptRunner() {
+        this(new RenderOptions());
+    }
+
+    public ScriptRunner(RenderOptions options) {
+        this.options = options;
+    }
+
+    public Path run(CharSequence script, Path baseDir) throws IOException {
+        return run(script, baseDir, Map.of());
+    }
+
+    public Path run(CharSequence script, Path baseDir, Map<String, String> parameters) throws IOException {
+        if (options.isStreamingParse()) {
+            return runStreaming(script, baseDir, parameters);
+        }
+        return run(compile(script), baseDir, parameters);
+    }
+
+    public Path run(ScriptTemplate template, Path baseDir, Map<String, String> parameters) throws IOException {
+        try (PdfContext context = new PdfContext(baseDir, options)) {
+            context.setParameters(parameters);
+            execute(template, context);
+            return context.finish();
+        }
+    }
+
+    public void run(CharSequence script, Path baseDir, Map<String, String> parameters, OutputStream outputStream)
+            throws IOException {
+        try (PdfContext context = new PdfContext(baseDir, options)) {
+            context.setParameters(parameters);
+            if (options.isStreamingParse()) {
+                executeStreaming(new ScriptParser(script), context);
+            } else {
+                execute(compile(script), context);
+            }
+            context.finish(outputStream);
+        }
+    }
+
+    public void run(CharSequence script, Path baseDir, Map<String, String> parameters, WritableByteChannel channel)
+            throws IOException {
+        // The channel stays open; closing it is up to the caller, as with an OutputStream.
+        run(script, baseDir, parameters, Channels.newOutputStream(channel));
+    }
+
+    public void run(ScriptTemplate template, Path baseDir, Map<String, String> parameters, OutputStream outputStream)
+            throws IOException {
+        try (PdfContext context = new PdfContext(baseDir, options)) {
+            context.setParameters(parameters);
+            execute(template, context);
+            context.finish(outputStream);
+        }
+    }
+
+    private void execute(ScriptTemplate template, PdfContext context) throws IOException {
+        // Fragments are spliced in up front so page sections and image prefetch see their commands.
+        List<ScriptCommand> commands = IncludeCommand.expand(template.getCommands(), context);
+        List<List<ScriptCommand>> pages = splitPages(commands);
+        if (options.getPageThreads() > 1 && pages.size() > 1) {
+            executeParallel(pages, context, options.getPageThreads());
+            return;
+        }
+        ProgressListener progress = options.getProgressListener();
+        ImagePrefetcher prefetcher = options.getImagePrefetch() > 0
+                ? new ImagePrefetcher(commands, options.getImagePrefetch())
+                : null;
+        for (int i = 0; i < commands.size(); i++) {
+            checkCancelled();
+            commands.get(i).execute(context);
+            if (prefetcher != null) {
+                // Prefetching after a command keeps image sizes in step with output settings it changed.
+                prefetcher.advance(context, i + 1);
+            }
+            if (progress != null) {
+                progress.progress(i + 1, commands.size());
+            }
+        }
+    }
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Rendering was cancelled");
+        }
+    }
+
+    private static List<List<ScriptCommand>> splitPages(List<ScriptCommand> commands) {
+        List<List<ScriptCommand>> pages = new ArrayList<>();
+        List<ScriptCommand> current = new ArrayList<>();
+        for (ScriptCommand command : commands) {
+            if ("nextpage".equals(kindOf(command))) {
+                pages.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(command);
+        }
+        pages.add(current);
+        return pages;
+    }
+
+    static String kindOf(ScriptCommand command) {
+        return command instanceof TracedCommand traced ? traced.kind() : null;
+    }
+
+    private void executeParallel(List<List<ScriptCommand>> pages, PdfContext context, int threads)
+            throws IOException {
+        // Only font state and blocks cross a nextpage boundary (tables are completed by it), so the main
+        // thread replays output, font and block commands to snapshot that state, and workers render each section.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ThreadLocal<PDDocument> scratch = ThreadLocal.withInitial(context::createScratchDocument);
+        try {
+            Deque<Future<List<PDPage>>> pending = new ArrayDeque<>();
+            ProgressListener progress = options.getProgressListener();
+            int done = 0;
+            for (List<ScriptCommand> section : pages) {
+                checkCancelled();
+                PdfContext.TextState textState = context.getTextState();
+                for (ScriptCommand command : section) {
+                    String kind = kindOf(command);
+                    if ("output".equals(kind) || "font".equals(kind) || "block".equals(kind)) {
+                        ((TracedCommand) command).delegate().execute(context);
+                    }
+                }
+                if (options.getImagePrefetch() > 0) {
+                    // Sections are bounded by the submit window below, so their images are fetched in full.
+                    for (ScriptCommand command : section) {
+                        ImagePrefetcher.prefetch(context, command);
+                    }
+                }
+                PdfContext worker = context.fork(textState);
+                pending.add(executor.submit(() -> {
+                    worker.setScratchDocument(scratch.get());
+                    return renderSection(worker, section);
+                }));
+                if (pending.size() >= threads * 2) {
+                    addPages(context, pending.poll());
+                    reportSection(progress, ++done, pages.size());
+                }
+            }
+            while (!pending.isEmpty()) {
+                addPages(context, pending.poll());
+                reportSection(progress, ++done, pages.size());
+            }
+            context.registerSubsetFonts();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void reportSection(ProgressListener progress, int done, int total) {
+        if (progress != null) {
+            progress.progress(done, total);
+        }
+    }
+
+    private static List<PDPage> renderSection(PdfContext worker, List<ScriptCommand> section)
+            throws IOException {
+        try (worker) {
+            for (ScriptCommand command : section) {
+                String kind = kindOf(command);
+                // Blocks were already rendered into the shared document by the main thread.
+                if (!"output".equals(kind) && !"block".equals(kind)) {
+                    command.execute(worker);
+                }
+            }
+            return worker.finishDetached();
+        }
+    }
+
+    private static void addPages(PdfContext context, Future<List<PDPage>> future) throws IOException {
+        List<PDPage> rendered;
+        try {
+            rendered = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for page rendering");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Page rendering failed", cause);
+        }
+        for (PDPage page : rendered) {
+            context.addRenderedPage(page);
+        }
+    }
+
+    private ScriptTemplate compile(CharSequence script) throws IOException {
+        // Tokenizing is interleaved with parsing, so both are reported as one phase.
+        try (PhaseTimer ignored = PhaseTimer.start("parse", options.getStats())) {
+            return TemplateCache.shared().compile(script);
+        }
+    }
+
+    public Path runStreaming(CharSequence script, Path baseDir, Map<String, String> parameters) throws IOException {
         ScriptParser parser = new ScriptParser(script);
-        List<ScriptCommand> commands = parser.parse();
-        try (PdfContext context = new PdfContext(baseDir)) {
-            for (ScriptCommand command : commands) {
+        try (PdfContext context = new PdfContext(baseDir, options)) {
+            context.setParameters(parameters);
+            executeStreaming(parser, context);
+            return context.finish();
+        }
+    }
+
+    private void executeStreaming(ScriptParser parser, PdfContext context) throws IOException {
+        if (options.getParseAhead() > 0) {
+            executePipelined(parser, context, options.getParseAhead());
+            return;
+        }
+        ScriptCommand command;
+        while ((command = parser.nextCommand()) != null) {
+            checkCancelled();
+            command.execute(context);
+        }
+    }
+
+    private void executePipelined(ScriptParser parser, PdfContext context, int parseAhead) throws IOException {
+        BlockingQueue<ScriptCommand> queue = new ArrayBlockingQueue<>(parseAhead);
+        AtomicReference<Exception> parseError = new AtomicReference<>();
+        Thread parserThread = new Thread(() -> {
+            try {
+                ScriptCommand command;
+                while ((command = parser.nextCommand()) != null) {
+                    queue.put(command);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (Exception ex) {
+                parseError.set(ex);
+            }
+            try {
+                queue.put(END_OF_SCRIPT);
+            } catch (InterruptedException ignored) {
+                // The executing thread has given up on this script.
+            }
+        }, "pdfscript-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+        try {
+            ScriptCommand command;
+            while ((command = queue.take()) != END_OF_SCRIPT) {
                 command.execute(context);
             }
-            return context.finish();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the parser");
+        } finally {
+            parserThread.interrupt();
+        }
+        Exception error = parseError.get();
+        if (error instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (error != null) {
+            throw new IOException("Parsing failed", error);
         }
     }
 }
@@ -0,0 +1,85 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class ScriptSource implements CharSequence {
+    private static final long MAP_THRESHOLD = Long.getLong("pdfscript.mapThreshold", 8L * 1024 * 1024);
+
+    // Characters are a Latin-1 view of the UTF-8 bytes. Script syntax is ASCII, and ASCII bytes
+    // never occur inside multi-byte UTF-8 sequences, so only materialised text needs real decoding.
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private ScriptSource(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static ScriptSource open(Path path) throws IOException {
+        // A mapping lives until the buffer is collected and on Windows locks the file against saves
+        // in the meantime, so only scripts large enough to benefit are mapped.
+        if (Files.size(path) < MAP_THRESHOLD) {
+            return wrap(Files.readAllBytes(path));
+        }
+        return map(path);
+    }
+
+    public static ScriptSource map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Script too large to map: " + path);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int start = hasByteOrderMark(mapped) ? 3 : 0;
+            return new ScriptSource(mapped, start, (int) size - start);
+        }
+    }
+
+    public static ScriptSource wrap(byte[] utf8) {
+        int start = hasByteOrderMark(ByteBuffer.wrap(utf8)) ? 3 : 0;
+        return new ScriptSource(ByteBuffer.wrap(utf8), start, utf8.length - start);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " outside 0.." + length);
+        }
+        return new ScriptSource(bytes, offset + start, end - start);
+    }
+
+    public String contentHash() {
+        return ContentHash.of(bytes.duplicate().position(offset).limit(offset + length));
+    }
+
+    @Override
+    public String toString() {
+        return StandardCharsets.UTF_8.decode(bytes.duplicate().position(offset).limit(offset + length)).toString();
+    }
+
+    private static boolean hasByteOrderMark(ByteBuffer buffer) {
+        return buffer.limit() >= 3
+                && (buffer.get(0) & 0xff) == 0xef
+                && (buffer.get(1) & 0xff) == 0xbb
+                && (buffer.get(2) & 0xff) == 0xbf;
+    }
+}
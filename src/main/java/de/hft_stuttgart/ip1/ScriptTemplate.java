@@ -0,0 +1,27 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.util.List;
+
+public final class ScriptTemplate {
+    private final List<ScriptCommand> commands;
+    private final List<TemplateText> outputFiles;
+
+    private ScriptTemplate(List<ScriptCommand> commands, List<TemplateText> outputFiles) {
+        this.commands = List.copyOf(commands);
+        this.outputFiles = List.copyOf(outputFiles);
+    }
+
+    public static ScriptTemplate compile(CharSequence script) throws IOException {
+        ScriptParser parser = new ScriptParser(script);
+        return new ScriptTemplate(parser.parse(), parser.getOutputFiles());
+    }
+
+    public List<ScriptCommand> getCommands() {
+        return commands;
+    }
+
+    public List<TemplateText> getOutputFiles() {
+        return outputFiles;
+    }
+}
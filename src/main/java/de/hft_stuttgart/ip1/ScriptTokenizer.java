@@ -3,11 +3,13 @@ package de.hft_stuttgart.ip1;
 import java.io.IOException;
 
 public class ScriptTokenizer {
-    private final String input;
+    private final CharSequence input;
     private int index = 0;
     private Token cached;
+    private int lineOffset = 0;
+    private int line = 1;
 
-    public ScriptTokenizer(String input) {
+    public ScriptTokenizer(CharSequence input) {
         this.input = input;
     }
 
@@ -27,10 +29,24 @@ public class ScriptTokenizer {
         return nextToken();
     }
 
+    public int lineOf(Token token) {
+        // Lines are counted lazily; the parser asks for command tokens in source order.
+        if (token.start() < lineOffset) {
+            lineOffset = 0;
+            line = 1;
+        }
+        for (; lineOffset < token.start(); lineOffset++) {
+            if (input.charAt(lineOffset) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
     private Token nextToken() throws IOException {
         skipWhitespace();
         if (index >= input.length()) {
-            return new Token(TokenType.EOF, "");
+            return new Token(TokenType.EOF, input, index, index);
         }
         char ch = input.charAt(index);
         if (ch == '"') {
@@ -42,8 +58,11 @@ public class ScriptTokenizer {
         if (Character.isLetter(ch) || ch == '_' || ch == '@') {
             return readWord();
         }
+        if (ch == '$' && startsWith(input, "{", index + 1)) {
+            return readPlaceholder();
+        }
         index++;
-        return new Token(TokenType.SYMBOL, String.valueOf(ch));
+        return new Token(TokenType.SYMBOL, input, index - 1, index);
     }
 
     private void skipWhitespace() {
@@ -58,45 +77,71 @@ public class ScriptTokenizer {
     }
 
     private Token readString() throws IOException {
-        if (input.startsWith("\"\"\"", index)) {
+        // Only the bounds are recorded here; the text is decoded when the parser asks for it.
+        int flags = 0;
+        if (startsWith(input, "\"\"\"", index)) {
             index += 3;
-            StringBuilder builder = new StringBuilder();
+            int start = index;
             while (index < input.length()) {
-                if (input.startsWith("\"\"\"", index)) {
+                if (startsWith(input, "\"\"\"", index)) {
                     index += 3;
-                    return new Token(TokenType.STRING, normalizeTriple(builder.toString()));
+                    return new Token(TokenType.STRING, input, start, index - 3, flags | Token.TRIPLE_QUOTED);
                 }
                 char ch = input.charAt(index++);
                 if (ch == '\\') {
-                    builder.append(readEscape());
-                } else {
-                    builder.append(ch);
+                    skipEscape();
+                    flags |= Token.ESCAPED;
                 }
             }
             throw new IOException("Unterminated triple-quoted string");
         }
 
         index++;
-        StringBuilder builder = new StringBuilder();
+        int start = index;
         while (index < input.length()) {
             char ch = input.charAt(index++);
             if (ch == '"') {
-                return new Token(TokenType.STRING, builder.toString());
+                return new Token(TokenType.STRING, input, start, index - 1, flags);
             }
             if (ch == '\\') {
-                builder.append(readEscape());
-            } else {
-                builder.append(ch);
+                skipEscape();
+                flags |= Token.ESCAPED;
             }
         }
         throw new IOException("Unterminated string");
     }
 
-    private char readEscape() throws IOException {
+    private void skipEscape() throws IOException {
         if (index >= input.length()) {
             throw new IOException("Unterminated escape sequence");
         }
-        char escaped = input.charAt(index++);
+        escapedChar(input.charAt(index++));
+    }
+
+    static String decodeString(CharSequence source, int start, int end, int flags) throws IOException {
+        String text;
+        if ((flags & Token.ESCAPED) == 0) {
+            text = source.subSequence(start, end).toString();
+        } else {
+            StringBuilder builder = new StringBuilder(end - start);
+            int segment = start;
+            for (int i = start; i < end; i++) {
+                if (source.charAt(i) == '\\') {
+                    builder.append(source.subSequence(segment, i).toString());
+                    builder.append(escapedChar(source.charAt(++i)));
+                    segment = i + 1;
+                }
+            }
+            builder.append(source.subSequence(segment, end).toString());
+            text = builder.toString();
+        }
+        if ((flags & Token.TRIPLE_QUOTED) != 0) {
+            return normalizeTriple(text);
+        }
+        return text;
+    }
+
+    private static char escapedChar(char escaped) throws IOException {
         return switch (escaped) {
             case 'n' -> '\n';
             case '"' -> '"';
@@ -105,7 +150,7 @@ public class ScriptTokenizer {
         };
     }
 
-    private String normalizeTriple(String text) {
+    private static String normalizeTriple(String text) {
         return text.replace("\r", "").replace("\n", " ");
     }
 
@@ -119,7 +164,26 @@ public class ScriptTokenizer {
             }
             index++;
         }
-        return new Token(TokenType.NUMBER, input.substring(start, index));
+        return new Token(TokenType.NUMBER, input, start, index);
+    }
+
+    private Token readPlaceholder() throws IOException {
+        int end = index + 2;
+        while (end < input.length() && input.charAt(end) != '}') {
+            end++;
+        }
+        if (end >= input.length()) {
+            throw new IOException("Unterminated placeholder");
+        }
+        int start = index + 2;
+        index = end + 1;
+        while (start < end && Character.isWhitespace(input.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        return new Token(TokenType.PLACEHOLDER, input, start, end);
     }
 
     private Token readWord() {
@@ -132,6 +196,18 @@ public class ScriptTokenizer {
             }
             index++;
         }
-        return new Token(TokenType.WORD, input.substring(start, index));
+        return new Token(TokenType.WORD, input, start, index);
+    }
+
+    private static boolean startsWith(CharSequence input, String prefix, int offset) {
+        if (offset + prefix.length() > input.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (input.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
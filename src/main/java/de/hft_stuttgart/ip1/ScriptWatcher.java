@@ -0,0 +1,108 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class ScriptWatcher {
+    private static final long SETTLE_MILLIS = 75;
+
+    public interface RenderAction {
+        void render() throws IOException;
+    }
+
+    private final Path script;
+    private final Set<Path> dependencies = ConcurrentHashMap.newKeySet();
+    private final PrintStream log;
+
+    public ScriptWatcher(Path script, RenderOptions options, PrintStream log) {
+        this.script = script.toAbsolutePath().normalize();
+        this.log = log;
+        options.setDependencies(dependencies);
+    }
+
+    public void run(RenderAction action) throws IOException, InterruptedException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<Path, WatchKey> watched = new HashMap<>();
+            while (true) {
+                Set<Path> files = render(action);
+                register(watchService, watched, files);
+                awaitChange(watchService, files);
+            }
+        }
+    }
+
+    private Set<Path> render(RenderAction action) {
+        dependencies.clear();
+        long start = System.nanoTime();
+        try {
+            action.render();
+            log.printf("Rendered %s in %d ms%n", script.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException ex) {
+            // Keep watching, so fixing the script or a missing file triggers the next attempt.
+            log.println("FAILED " + script.getFileName() + ": " + ex.getMessage());
+        }
+        Set<Path> files = new HashSet<>(dependencies);
+        files.add(script);
+        return files;
+    }
+
+    private static void register(WatchService watchService, Map<Path, WatchKey> watched, Set<Path> files)
+            throws IOException {
+        Set<Path> directories = new HashSet<>();
+        for (Path file : files) {
+            directories.add(file.getParent());
+        }
+        Iterator<Map.Entry<Path, WatchKey>> entries = watched.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = entries.next();
+            if (!directories.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                entries.remove();
+            }
+        }
+        for (Path directory : directories) {
+            if (!watched.containsKey(directory) && directory.toFile().isDirectory()) {
+                // Editors often save by renaming a temporary file, which shows up as a create.
+                watched.put(directory, directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        }
+    }
+
+    private static void awaitChange(WatchService watchService, Set<Path> files) throws InterruptedException {
+        boolean changed = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+            changed |= isRelevant(key, files);
+            key.reset();
+            // A save usually fires several events; wait until they settle before rendering once.
+            key = changed ? watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS) : watchService.take();
+        }
+    }
+
+    private static boolean isRelevant(WatchKey key, Set<Path> files) {
+        boolean relevant = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (files.contains(directory.resolve((Path) event.context()))) {
+                relevant = true;
+            }
+        }
+        return relevant;
+    }
+}
@@ -0,0 +1,144 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public record SyntheticWorkload(
+        int pages,
+        int printsPerPage,
+        int tableRows,
+        int tableColumns,
+        int imagesPerPage,
+        int distinctImages,
+        int imageWidth,
+        int imageHeight
+) {
+    private static final float MARGIN = 40f;
+    private static final float LINE_HEIGHT = 12f;
+    private static final int LINES_PER_COLUMN = 40;
+    private static final float TABLE_Y = 560f;
+    private static final float TABLE_WIDTH = 515f;
+    private static final float ROW_HEIGHT = 14f;
+    private static final String FILLER = "lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor";
+
+    public SyntheticWorkload {
+        if (pages <= 0) {
+            throw new IllegalArgumentException("A workload needs at least one page");
+        }
+        if (printsPerPage < 0 || tableRows < 0 || tableColumns < 0 || imagesPerPage < 0) {
+            throw new IllegalArgumentException("Workload counts must not be negative");
+        }
+        if (imagesPerPage > 0 && (distinctImages <= 0 || imageWidth <= 0 || imageHeight <= 0)) {
+            throw new IllegalArgumentException("Images need a positive count and size");
+        }
+    }
+
+    public boolean hasTable() {
+        return tableRows > 0 && tableColumns > 0;
+    }
+
+    public int expectedPages() {
+        if (!hasTable()) {
+            return pages;
+        }
+        // Each page's table continues on extra pages once it runs past the bottom margin.
+        TableLayout layout = new TableLayout(
+                MARGIN, TABLE_Y, tableColumns, tableRows, 1,
+                widths(), heights(), Color.BLACK, Color.WHITE, 0.5f,
+                PDRectangle.A4.getHeight(), TableRenderer.DEFAULT_MARGIN
+        );
+        return pages * layout.getSegmentCount();
+    }
+
+    public String script() {
+        StringBuilder script = new StringBuilder(pages * (printsPerPage * 110 + tableRows * tableColumns * 24 + 200));
+        script.append("font size 9 \"Helvetica\".\n");
+        int image = 0;
+        for (int page = 0; page < pages; page++) {
+            if (page > 0) {
+                script.append("nextpage.\n");
+            }
+            for (int line = 0; line < printsPerPage; line++) {
+                // Lines fill two columns and then start over, so any count stays on the page.
+                float x = MARGIN + (line / LINES_PER_COLUMN % 2) * 140f;
+                float y = MARGIN + (line % LINES_PER_COLUMN) * LINE_HEIGHT;
+                script.append(String.format(Locale.ROOT, "print @ %.1f, %.1f width 130 \"Page %d line %d: %s\".%n",
+                        x, y, page, line, FILLER));
+            }
+            for (int slot = 0; slot < imagesPerPage; slot++) {
+                float x = 330f + (slot % 2) * 115f;
+                float y = MARGIN + (slot / 2 % 6) * 85f;
+                script.append(String.format(Locale.ROOT, "image @ %.1f, %.1f size 110,80 \"%s\".%n",
+                        x, y, imageName(image++ % distinctImages)));
+            }
+            if (hasTable()) {
+                appendTable(script, page);
+            }
+        }
+        return script.toString();
+    }
+
+    private void appendTable(StringBuilder script, int page) {
+        script.append(String.format(Locale.ROOT,
+                "table @ %.1f, %.1f columns %d rows %d header 1 width %.2f height %.1f lines black thickness 0.5 .%n",
+                MARGIN, TABLE_Y, tableColumns, tableRows, TABLE_WIDTH / tableColumns, ROW_HEIGHT));
+        for (int row = 0; row < tableRows; row++) {
+            for (int column = 0; column < tableColumns; column++) {
+                script.append(String.format(Locale.ROOT, "print cell %d, %d \"%s %d.%d\".%n",
+                        column, row, row == 0 ? "Head" : "p" + page, row, column));
+            }
+        }
+    }
+
+    private float[] widths() {
+        float[] widths = new float[tableColumns];
+        Arrays.fill(widths, TABLE_WIDTH / tableColumns);
+        return widths;
+    }
+
+    private float[] heights() {
+        float[] heights = new float[tableRows];
+        Arrays.fill(heights, ROW_HEIGHT);
+        return heights;
+    }
+
+    public List<Path> writeImages(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (imagesPerPage == 0) {
+            return files;
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < distinctImages; i++) {
+            BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xffffff)),
+                    imageWidth, imageHeight, new Color(random.nextInt(0xffffff))));
+            graphics.fillRect(0, 0, imageWidth, imageHeight);
+            // Some detail keeps the JPEGs closer to photo sizes than a bare gradient would.
+            for (int shape = 0; shape < 300; shape++) {
+                graphics.setColor(new Color(random.nextInt(0xffffff) | 0x60000000, true));
+                graphics.fillOval(random.nextInt(imageWidth), random.nextInt(imageHeight),
+                        1 + random.nextInt(imageWidth / 8 + 1), 1 + random.nextInt(imageHeight / 8 + 1));
+            }
+            graphics.dispose();
+            Path file = directory.resolve(imageName(i));
+            ImageIO.write(image, "jpeg", file.toFile());
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static String imageName(int index) {
+        return "bench-" + index + ".jpg";
+    }
+}
@@ -2,39 +2,95 @@ package de.hft_stuttgart.ip1;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class TableLayout {
+    public record HeaderText(
+            int column,
+            int row,
+            Float width,
+            TextAlignment alignment,
+            String text,
+            MeasuredFont font,
+            float fontSize,
+            Color color
+    ) {
+    }
+
     private final float originX;
     private final float originY;
     private final int columns;
     private final int rows;
-    private final List<Float> columnWidths;
-    private final List<Float> rowHeights;
+    private final int headerRows;
+    private final float[] columnOffsets;
+    private final float[] rowOffsets;
     private final Color lineColor;
     private final Color backgroundColor;
     private final float lineThickness;
+    private final float continuationY;
+    private final int[] segmentStarts;
+    private final int[] rowSegments;
+    private final List<HeaderText> headerTexts = new ArrayList<>();
+    private int currentSegment;
 
     public TableLayout(
             float originX,
             float originY,
             int columns,
             int rows,
-            List<Float> columnWidths,
-            List<Float> rowHeights,
+            int headerRows,
+            float[] columnWidths,
+            float[] rowHeights,
             Color lineColor,
             Color backgroundColor,
-            float lineThickness
+            float lineThickness,
+            float pageHeight,
+            float margin
     ) {
         this.originX = originX;
         this.originY = originY;
         this.columns = columns;
         this.rows = rows;
-        this.columnWidths = new ArrayList<>(columnWidths);
-        this.rowHeights = new ArrayList<>(rowHeights);
+        this.headerRows = headerRows < rows ? Math.max(0, headerRows) : 0;
+        this.columnOffsets = prefixSums(columnWidths, columns);
+        this.rowOffsets = prefixSums(rowHeights, rows);
         this.lineColor = lineColor;
         this.backgroundColor = backgroundColor;
         this.lineThickness = lineThickness;
+        this.continuationY = margin;
+        this.rowSegments = new int[rows];
+        this.segmentStarts = paginate(pageHeight - margin);
+    }
+
+    private static float[] prefixSums(float[] sizes, int count) {
+        float[] offsets = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = offsets[i] + sizes[i];
+        }
+        return offsets;
+    }
+
+    private int[] paginate(float bottomLimit) {
+        // Each segment holds at least one body row, so oversized rows still make progress.
+        int[] starts = new int[4];
+        int segments = 1;
+        float top = originY;
+        int start = 0;
+        for (int row = 0; row < rows; row++) {
+            int firstBodyRow = segments == 1 ? headerRows : start;
+            float bottom = top + getHeaderHeight(segments - 1) + rowOffsets[row + 1] - rowOffsets[start];
+            if (bottom > bottomLimit && row > firstBodyRow) {
+                if (segments == starts.length) {
+                    starts = Arrays.copyOf(starts, segments * 2);
+                }
+                starts[segments++] = row;
+                top = continuationY;
+                start = row;
+            }
+            rowSegments[row] = segments - 1;
+        }
+        return Arrays.copyOf(starts, segments);
     }
 
     public float getOriginX() {
@@ -53,12 +109,8 @@ public class TableLayout {
         return rows;
     }
 
-    public List<Float> getColumnWidths() {
-        return columnWidths;
-    }
-
-    public List<Float> getRowHeights() {
-        return rowHeights;
+    public int getHeaderRows() {
+        return headerRows;
     }
 
     public Color getLineColor() {
@@ -73,27 +125,82 @@ public class TableLayout {
         return lineThickness;
     }
 
-    public float getCellX(int column) {
-        float x = originX;
-        for (int i = 0; i < column && i < columnWidths.size(); i++) {
-            x += columnWidths.get(i);
+    public float getTotalWidth() {
+        return columnOffsets[columns];
+    }
+
+    public int getSegmentCount() {
+        return segmentStarts.length;
+    }
+
+    public int getSegmentOf(int row) {
+        if (row < headerRows) {
+            return currentSegment;
         }
-        return x;
+        return rowSegments[Math.max(0, Math.min(row, rows - 1))];
+    }
+
+    public int getCurrentSegment() {
+        return currentSegment;
+    }
+
+    public void setCurrentSegment(int currentSegment) {
+        this.currentSegment = currentSegment;
+    }
+
+    public float getSegmentTop(int segment) {
+        return segment == 0 ? originY : continuationY;
+    }
+
+    public int getSegmentStart(int segment) {
+        return segmentStarts[segment];
+    }
+
+    public int getSegmentEnd(int segment) {
+        return segment + 1 < segmentStarts.length ? segmentStarts[segment + 1] : rows;
+    }
+
+    public float getHeaderHeight(int segment) {
+        return segment == 0 ? 0f : rowOffsets[headerRows];
+    }
+
+    public float getRowOffset(int row) {
+        return rowOffsets[row];
+    }
+
+    public float getColumnOffset(int column) {
+        return columnOffsets[column];
+    }
+
+    public List<HeaderText> getHeaderTexts() {
+        return headerTexts;
+    }
+
+    public void addHeaderText(HeaderText headerText) {
+        headerTexts.add(headerText);
+    }
+
+    public float getCellX(int column) {
+        return originX + columnOffsets[Math.max(0, Math.min(column, columns))];
     }
 
     public float getCellY(int row) {
-        float y = originY;
-        for (int i = 0; i < row && i < rowHeights.size(); i++) {
-            y += rowHeights.get(i);
+        int clamped = Math.max(0, Math.min(row, rows));
+        if (row < headerRows) {
+            return getSegmentTop(currentSegment) + rowOffsets[clamped];
         }
-        return y;
+        int segment = getSegmentOf(row);
+        int start = segmentStarts[segment];
+        return getSegmentTop(segment) + getHeaderHeight(segment) + rowOffsets[clamped] - rowOffsets[start];
     }
 
     public float getCellWidth(int column) {
-        return columnWidths.get(Math.min(column, columnWidths.size() - 1));
+        int clamped = Math.max(0, Math.min(column, columns - 1));
+        return columnOffsets[clamped + 1] - columnOffsets[clamped];
     }
 
     public float getCellHeight(int row) {
-        return rowHeights.get(Math.min(row, rowHeights.size() - 1));
+        int clamped = Math.max(0, Math.min(row, rows - 1));
+        return rowOffsets[clamped + 1] - rowOffsets[clamped];
     }
 }
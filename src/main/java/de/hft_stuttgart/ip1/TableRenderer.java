@@ -4,87 +4,160 @@ import org.apache.pdfbox.pdmodel.PDPageContentStream;
 
 import java.awt.*;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 public class TableRenderer {
+    public static final float DEFAULT_MARGIN = 36f;
+
     public static TableLayout renderTable(
             PdfContext context,
             float originX,
             float originY,
             int columns,
             int rows,
-            List<Float> widths,
-            List<Float> heights,
+            int headerRows,
+            float[] widths,
+            float[] heights,
             Color lineColor,
             Color background,
-            float thickness
+            float thickness,
+            float margin
     ) throws IOException {
         if (columns <= 0 || rows <= 0) {
             throw new IOException("Table requires columns and rows");
         }
-        List<Float> columnWidths = expandList(widths, columns, 40f);
-        List<Float> rowHeights = expandList(heights, rows, 20f);
+        context.completeTable();
         TableLayout layout = new TableLayout(
                 originX,
                 originY,
                 columns,
                 rows,
-                columnWidths,
-                rowHeights,
+                headerRows,
+                expand(widths, columns, 40f),
+                expand(heights, rows, 20f),
                 lineColor,
                 background,
-                thickness
+                thickness,
+                context.getPageBox().getHeight(),
+                margin
         );
+        drawSegment(context, layout, 0);
+        context.setTableLayout(layout);
+        return layout;
+    }
+
+    public static void printCell(
+            PdfContext context,
+            int column,
+            int row,
+            Float width,
+            TextAlignment alignment,
+            String text
+    ) throws IOException {
+        TableLayout layout = context.getTableLayout();
+        if (layout == null) {
+            throw new IOException("No table defined for cell positioning");
+        }
+        int segment = layout.getSegmentOf(row);
+        if (segment < layout.getCurrentSegment()) {
+            throw new IOException("Table row " + row + " is on an earlier page; print table rows in order");
+        }
+        advance(context, layout, segment);
+        TextRenderer.renderText(context, layout.getCellX(column), layout.getCellY(row), width, alignment, text);
+        if (row < layout.getHeaderRows()) {
+            layout.addHeaderText(new TableLayout.HeaderText(
+                    column,
+                    row,
+                    width,
+                    alignment,
+                    text,
+                    context.getMeasuredFont(),
+                    context.getFontSize(),
+                    context.getTextColor()
+            ));
+        }
+    }
+
+    public static void completeTable(PdfContext context, TableLayout layout) throws IOException {
+        advance(context, layout, layout.getSegmentCount() - 1);
+    }
+
+    private static void advance(PdfContext context, TableLayout layout, int segment) throws IOException {
+        while (layout.getCurrentSegment() < segment) {
+            context.startPage();
+            layout.setCurrentSegment(layout.getCurrentSegment() + 1);
+            drawSegment(context, layout, layout.getCurrentSegment());
+            repeatHeaderTexts(context, layout);
+        }
+    }
 
-        PDPageContentStream contentStream = context.getContentStream();
-        float totalWidth = columnWidths.stream().reduce(0f, Float::sum);
-        float totalHeight = rowHeights.stream().reduce(0f, Float::sum);
-        float topY = context.toPdfY(originY);
+    private static void repeatHeaderTexts(PdfContext context, TableLayout layout) throws IOException {
+        if (layout.getHeaderTexts().isEmpty()) {
+            return;
+        }
+        MeasuredFont font = context.getMeasuredFont();
+        float fontSize = context.getFontSize();
+        Color color = context.getTextColor();
+        for (TableLayout.HeaderText header : layout.getHeaderTexts()) {
+            context.setFont(header.font(), header.fontSize(), header.color());
+            TextRenderer.renderText(
+                    context,
+                    layout.getCellX(header.column()),
+                    layout.getCellY(header.row()),
+                    header.width(),
+                    header.alignment(),
+                    header.text()
+            );
+        }
+        context.setFont(font, fontSize, color);
+    }
+
+    private static void drawSegment(PdfContext context, TableLayout layout, int segment) throws IOException {
+        GraphicsState graphics = context.getGraphics();
+        PDPageContentStream contentStream = graphics.getContentStream();
+        int start = layout.getSegmentStart(segment);
+        int end = layout.getSegmentEnd(segment);
+        float headerHeight = layout.getHeaderHeight(segment);
+        float originX = layout.getOriginX();
+        float totalWidth = layout.getTotalWidth();
+        float totalHeight = headerHeight + layout.getRowOffset(end) - layout.getRowOffset(start);
+        float topY = context.toPdfY(layout.getSegmentTop(segment));
         float bottomY = topY - totalHeight;
 
-        contentStream.setNonStrokingColor(background);
+        graphics.setNonStrokingColor(layout.getBackgroundColor());
         contentStream.addRect(originX, bottomY, totalWidth, totalHeight);
         contentStream.fill();
 
-        contentStream.setStrokingColor(lineColor);
-        contentStream.setLineWidth(thickness);
+        graphics.setStrokingColor(layout.getLineColor());
+        graphics.setLineWidth(layout.getLineThickness());
 
-        float currentX = originX;
-        for (int col = 0; col <= columns; col++) {
-            float drawX = currentX;
+        for (int col = 0; col <= layout.getColumns(); col++) {
+            float drawX = originX + layout.getColumnOffset(col);
             contentStream.moveTo(drawX, bottomY);
             contentStream.lineTo(drawX, topY);
-            if (col < columns) {
-                currentX += columnWidths.get(col);
-            }
         }
 
-        float currentY = topY;
-        for (int row = 0; row <= rows; row++) {
-            float drawY = currentY;
+        // Continuation pages start with the repeated header rows.
+        if (segment > 0) {
+            for (int row = 0; row < layout.getHeaderRows(); row++) {
+                float drawY = topY - layout.getRowOffset(row);
+                contentStream.moveTo(originX, drawY);
+                contentStream.lineTo(originX + totalWidth, drawY);
+            }
+        }
+        float bodyTopY = topY - headerHeight;
+        for (int row = start; row <= end; row++) {
+            float drawY = bodyTopY - (layout.getRowOffset(row) - layout.getRowOffset(start));
             contentStream.moveTo(originX, drawY);
             contentStream.lineTo(originX + totalWidth, drawY);
-            if (row < rows) {
-                currentY -= rowHeights.get(row);
-            }
         }
 
         contentStream.stroke();
-        return layout;
     }
 
-    private static List<Float> expandList(List<Float> values, int target, float fallback) {
-        List<Float> result = new ArrayList<>();
-        if (values.isEmpty()) {
-            for (int i = 0; i < target; i++) {
-                result.add(fallback);
-            }
-            return result;
-        }
+    private static float[] expand(float[] values, int target, float fallback) {
+        float[] result = new float[target];
         for (int i = 0; i < target; i++) {
-            int index = Math.min(i, values.size() - 1);
-            result.add(values.get(index));
+            result[i] = values.length == 0 ? fallback : values[Math.min(i, values.length - 1)];
         }
         return result;
     }
@@ -0,0 +1,50 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TemplateCache {
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final TemplateCache SHARED = new TemplateCache(Integer.getInteger("pdfscript.templateCacheSize", DEFAULT_CAPACITY));
+
+    private final Map<String, ScriptTemplate> templates;
+
+    public TemplateCache(int capacity) {
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ScriptTemplate> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static TemplateCache shared() {
+        return SHARED;
+    }
+
+    public ScriptTemplate compile(CharSequence script) throws IOException {
+        String key = script instanceof ScriptSource source
+                ? source.contentHash()
+                : ContentHash.of(script.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (templates) {
+            ScriptTemplate cached = templates.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Parse outside the lock; a concurrent duplicate parse yields an equivalent template.
+        ScriptTemplate template = ScriptTemplate.compile(script);
+        synchronized (templates) {
+            templates.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+
+public record TemplateNumber(float value, String parameter) {
+    public static TemplateNumber constant(float value) {
+        return new TemplateNumber(value, null);
+    }
+
+    public static TemplateNumber parameter(String name) {
+        return new TemplateNumber(0f, name);
+    }
+
+    public float resolve(PdfContext context) throws IOException {
+        if (parameter == null) {
+            return value;
+        }
+        String text = context.getParameter(parameter);
+        try {
+            return Float.parseFloat(text.trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException("Template parameter " + parameter + " is not a number: " + text);
+        }
+    }
+
+    public int resolveInt(PdfContext context) throws IOException {
+        float resolved = resolve(context);
+        if (parameter != null && resolved != Math.rint(resolved)) {
+            throw new IOException("Template parameter " + parameter + " is not a whole number: " + resolved);
+        }
+        return Math.round(resolved);
+    }
+}
@@ -0,0 +1,82 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TemplateText {
+    private final String literal;
+    private final String[] parts;
+
+    private TemplateText(String literal, String[] parts) {
+        this.literal = literal;
+        this.parts = parts;
+    }
+
+    public static TemplateText compile(String text) throws IOException {
+        if (!text.contains("${")) {
+            return new TemplateText(text, null);
+        }
+        // Even indexes hold literal text, odd indexes hold parameter names; $${ stands for a literal ${.
+        List<String> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(text.length());
+        int index = 0;
+        while (index < text.length()) {
+            if (text.startsWith("$${", index)) {
+                literal.append("${");
+                index += 3;
+            } else if (text.startsWith("${", index)) {
+                int end = text.indexOf('}', index + 2);
+                if (end < 0) {
+                    throw new IOException("Unterminated placeholder in: " + text);
+                }
+                parts.add(literal.toString());
+                parts.add(text.substring(index + 2, end).trim());
+                literal.setLength(0);
+                index = end + 1;
+            } else {
+                literal.append(text.charAt(index++));
+            }
+        }
+        if (parts.isEmpty()) {
+            return new TemplateText(literal.toString(), null);
+        }
+        parts.add(literal.toString());
+        return new TemplateText(null, parts.toArray(new String[0]));
+    }
+
+    public boolean isConstant() {
+        return parts == null;
+    }
+
+    public String resolve(PdfContext context) throws IOException {
+        if (parts == null) {
+            return literal;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            builder.append(i % 2 == 0 ? parts[i] : context.getParameter(parts[i]));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        if (parts == null) {
+            return escape(literal);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 0) {
+                builder.append(escape(parts[i]));
+            } else {
+                builder.append("${").append(parts[i]).append('}');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("${", "$${");
+    }
+}
@@ -1,12 +1,10 @@
 package de.hft_stuttgart.ip1;
 
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDFont;
 
 import java.awt.*;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class TextRenderer {
     public static void renderText(
@@ -17,60 +15,168 @@ public class TextRenderer {
             TextAlignment alignment,
             String text
     ) throws IOException {
-        PDFont font = context.getFont();
+        MeasuredFont font = context.getMeasuredFont();
         float fontSize = context.getFontSize();
         Color color = context.getTextColor();
-        PDPageContentStream contentStream = context.getContentStream();
-
-        List<String> lines = wrapLines(font, fontSize, text, width);
+        WrappedLines lines;
+        try (PhaseTimer ignored = PhaseTimer.start("layout", context.getStats())) {
+            lines = wrapLines(font, fontSize, text, width);
+        }
+        if (lines.size() == 0) {
+            return;
+        }
+        GraphicsState graphics = context.getGraphics();
+        PDPageContentStream contentStream = graphics.getContentStream();
         float lineHeight = fontSize * 1.2f;
-        float currentY = context.toPdfY(y);
 
-        for (String line : lines) {
-            float lineWidth = font.getStringWidth(line) / 1000f * fontSize;
+        // All lines share one text object; each line start is given relative to the previous one.
+        contentStream.beginText();
+        graphics.setFont(font.getFont(), fontSize);
+        graphics.setNonStrokingColor(color);
+        float previousX = 0f;
+        for (int i = 0; i < lines.size(); i++) {
+            float lineWidth = lines.width(i);
             float alignedX = switch (alignment) {
                 case CENTER -> x - lineWidth / 2f;
                 case RIGHT -> x - lineWidth;
                 default -> x;
             };
-            contentStream.beginText();
-            contentStream.setFont(font, fontSize);
-            contentStream.setNonStrokingColor(color);
-            contentStream.newLineAtOffset(alignedX, currentY);
-            contentStream.showText(line);
-            contentStream.endText();
-            currentY -= lineHeight;
+            if (i == 0) {
+                contentStream.newLineAtOffset(alignedX, context.toPdfY(y));
+            } else {
+                contentStream.newLineAtOffset(alignedX - previousX, -lineHeight);
+            }
+            synchronized (font.getFont()) {
+                contentStream.showText(lines.line(i));
+            }
+            previousX = alignedX;
         }
+        contentStream.endText();
     }
 
-    private static List<String> wrapLines(PDFont font, float fontSize, String text, Float width) throws IOException {
-        List<String> lines = new ArrayList<>();
-        String[] paragraphs = text.split("\\n", -1);
-        for (int p = 0; p < paragraphs.length; p++) {
-            String paragraph = paragraphs[p];
+    static WrappedLines wrapLines(MeasuredFont font, float fontSize, String text, Float width) throws IOException {
+        WrappedLines lines = new WrappedLines();
+        int paragraphStart = 0;
+        while (true) {
+            int paragraphEnd = text.indexOf('\n', paragraphStart);
+            boolean last = paragraphEnd < 0;
+            if (last) {
+                paragraphEnd = text.length();
+            }
             if (width == null) {
-                lines.add(paragraph);
+                lines.add(text.substring(paragraphStart, paragraphEnd), font.getWidth(text, paragraphStart, paragraphEnd, fontSize));
+            } else {
+                wrapParagraph(font, fontSize, text, paragraphStart, paragraphEnd, width, lines);
+            }
+            if (last) {
+                return lines;
+            }
+            lines.add("", 0f);
+            paragraphStart = paragraphEnd + 1;
+        }
+    }
+
+    private static void wrapParagraph(
+            MeasuredFont font,
+            float fontSize,
+            String text,
+            int start,
+            int end,
+            float width,
+            WrappedLines lines
+    ) throws IOException {
+        // Widths are summed in font units and only scaled for the comparison, so each word is measured once.
+        float limit = width * 1000f / fontSize;
+        float spaceWidth = font.measure(" ", 0, 1);
+        int lineStart = -1;
+        int lineEnd = -1;
+        float lineWidth = 0f;
+        boolean singleSpaced = true;
+
+        int index = start;
+        while (true) {
+            while (index < end && isSpace(text.charAt(index))) {
+                index++;
+            }
+            if (index >= end) {
+                break;
+            }
+            int wordStart = index;
+            while (index < end && !isSpace(text.charAt(index))) {
+                index++;
+            }
+            float wordWidth = font.measure(text, wordStart, index);
+
+            if (lineStart < 0) {
+                lineStart = wordStart;
+                lineWidth = wordWidth;
+            } else if (lineWidth + spaceWidth + wordWidth > limit) {
+                lines.add(lineText(text, lineStart, lineEnd, singleSpaced), lineWidth / 1000f * fontSize);
+                lineStart = wordStart;
+                lineWidth = wordWidth;
+                singleSpaced = true;
             } else {
-                String[] words = paragraph.split("\\s+");
-                StringBuilder line = new StringBuilder();
-                for (String word : words) {
-                    String candidate = line.length() == 0 ? word : line + " " + word;
-                    float lineWidth = font.getStringWidth(candidate) / 1000f * fontSize;
-                    if (lineWidth > width && line.length() > 0) {
-                        lines.add(line.toString());
-                        line = new StringBuilder(word);
-                    } else {
-                        line = new StringBuilder(candidate);
-                    }
-                }
-                if (line.length() > 0) {
-                    lines.add(line.toString());
-                }
+                singleSpaced &= wordStart - lineEnd == 1 && text.charAt(lineEnd) == ' ';
+                lineWidth += spaceWidth + wordWidth;
             }
-            if (p < paragraphs.length - 1) {
-                lines.add("");
+            lineEnd = index;
+        }
+        if (lineStart >= 0) {
+            lines.add(lineText(text, lineStart, lineEnd, singleSpaced), lineWidth / 1000f * fontSize);
+        }
+    }
+
+    private static String lineText(String text, int start, int end, boolean singleSpaced) {
+        if (singleSpaced) {
+            return text.substring(start, end);
+        }
+        // Collapse whitespace runs inside the line to the single space it was measured with.
+        StringBuilder builder = new StringBuilder(end - start);
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (isSpace(ch)) {
+                inSpace = true;
+                continue;
             }
+            if (inSpace) {
+                builder.append(' ');
+                inSpace = false;
+            }
+            builder.append(ch);
+        }
+        return builder.toString();
+    }
+
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f' || ch == '\u000B';
+    }
+
+    static final class WrappedLines {
+        private String[] lines = new String[8];
+        private float[] widths = new float[8];
+        private int size;
+
+        void add(String line, float width) {
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+                widths = Arrays.copyOf(widths, size * 2);
+            }
+            lines[size] = line;
+            widths[size] = width;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String line(int index) {
+            return lines[index];
+        }
+
+        float width(int index) {
+            return widths[index];
         }
-        return lines;
     }
 }
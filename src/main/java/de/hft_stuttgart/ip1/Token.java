@@ -1,4 +1,28 @@
 package de.hft_stuttgart.ip1;
 
-public record Token(TokenType type, String text) {
+import java.io.IOException;
+
+public record Token(TokenType type, CharSequence source, int start, int end, int flags) {
+    public static final int ESCAPED = 1;
+    public static final int TRIPLE_QUOTED = 2;
+
+    public Token(TokenType type, CharSequence source, int start, int end) {
+        this(type, source, start, end, 0);
+    }
+
+    public boolean isSymbol(char symbol) {
+        return type == TokenType.SYMBOL && source.charAt(start) == symbol;
+    }
+
+    public String text() throws IOException {
+        if (type == TokenType.STRING) {
+            return ScriptTokenizer.decodeString(source, start, end, flags);
+        }
+        return source.subSequence(start, end).toString();
+    }
+
+    @Override
+    public String toString() {
+        return type == TokenType.EOF ? "end of script" : source.subSequence(start, end).toString();
+    }
 }
@@ -5,5 +5,6 @@ public enum TokenType {
     NUMBER,
     STRING,
     SYMBOL,
+    PLACEHOLDER,
     EOF
 }
@@ -0,0 +1,28 @@
+package de.hft_stuttgart.ip1;
+
+import java.io.IOException;
+
+public record TracedCommand(String kind, int line, ScriptCommand delegate) implements ScriptCommand {
+    @Override
+    public void execute(PdfContext context) throws IOException {
+        RenderStats stats = context.getStats();
+        CommandEvent event = new CommandEvent();
+        if (stats == null && !event.isEnabled()) {
+            delegate.execute(context);
+            return;
+        }
+        event.kind = kind;
+        event.line = line;
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            delegate.execute(context);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            event.commit();
+            if (stats != null) {
+                stats.recordCommand(kind, elapsed);
+            }
+        }
+    }
+}
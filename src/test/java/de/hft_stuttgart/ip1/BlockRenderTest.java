@@ -0,0 +1,84 @@
+package de.hft_stuttgart.ip1;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlockRenderTest {
+    private static final int PAGES = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fontFileInBlockIsSubsetOnceAcrossPageThreads() throws IOException {
+        Path font = directory.resolve("LiberationSans-Regular.ttf");
+        try (InputStream input = BlockRenderTest.class.getResourceAsStream(
+                "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf")) {
+            Files.copy(input, font);
+        }
+        StringBuilder script = new StringBuilder("""
+                block size 300, 60 "letterhead".
+                font size 14 "${font}".
+                print @ 10, 20 "ACME Supplies Ltd.".
+                end.
+                """);
+        for (int page = 0; page < PAGES; page++) {
+            script.append(page > 0 ? "nextpage.\n" : "")
+                    .append("font size 10 \"${font}\".\n")
+                    .append("print @ 50, 200 \"Statement ").append(page).append("\".\n")
+                    .append("stamp @ 50, 50 \"letterhead\".\n");
+        }
+        RenderOptions options = new RenderOptions();
+        options.setPageThreads(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ScriptRunner(options).run(ScriptTemplate.compile(script), directory,
+                Map.of("font", font.toString()), output);
+
+        try (PDDocument document = Loader.loadPDF(output.toByteArray())) {
+            assertEquals(PAGES, document.getNumberOfPages());
+            Set<String> embedded = new TreeSet<>();
+            for (PDPage page : document.getPages()) {
+                collectEmbeddedFonts(page.getResources(), embedded);
+            }
+            // Pages and the stamped form share one subset instead of each worker embedding its own.
+            assertEquals(1, embedded.size(), "embedded fonts: " + embedded);
+        }
+    }
+
+    private static void collectEmbeddedFonts(PDResources resources, Set<String> embedded) throws IOException {
+        if (resources == null) {
+            return;
+        }
+        for (COSName name : resources.getFontNames()) {
+            PDFont font = resources.getFont(name);
+            if (font.isEmbedded()) {
+                embedded.add(font.getName());
+            }
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (xObject instanceof PDFormXObject form) {
+                collectEmbeddedFonts(form.getResources(), embedded);
+            }
+        }
+    }
+}